@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.cpu;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import at.amartinz.hardware.Constants;
+import at.amartinz.hardware.utils.FrequencyTable;
+import at.amartinz.hardware.utils.HwIoUtils;
+import at.amartinz.hardware.utils.HwUtils;
+
+/**
+ * A cpufreq policy and the cores it controls, eg. the little or big cluster of a big.LITTLE SoC.
+ * <p>
+ * The topology and the available frequencies and governors are static and get discovered once,
+ * see {@link CpuTopology}. The current values are only set on instances returned by {@link #read()}.
+ */
+public class CpuCluster {
+    public final int policy;
+    public final int[] cpus;
+    public final FrequencyTable freqAvail;
+    public final List<String> govAvail;
+
+    public int freqCur = Constants.NOT_INITIALIZED;
+    public int freqMax = Constants.NOT_INITIALIZED;
+    public int freqMin = Constants.NOT_INITIALIZED;
+    public String govCur = Constants.NOT_INITIALIZED_STR;
+
+    // the cpufreq directory of the policy, ending with a slash
+    private final String path;
+
+    CpuCluster(int policy, @NonNull int[] cpus, @NonNull String path, @NonNull FrequencyTable freqAvail,
+            @NonNull List<String> govAvail) {
+        this.policy = policy;
+        this.cpus = cpus;
+        this.path = path;
+        this.freqAvail = freqAvail;
+        this.govAvail = govAvail;
+    }
+
+    private CpuCluster(@NonNull CpuCluster topology) {
+        this(topology.policy, topology.cpus, topology.path, topology.freqAvail, topology.govAvail);
+    }
+
+    public boolean containsCpu(int cpu) {
+        for (final int c : cpus) {
+            if (c == cpu) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NonNull public String getPath() {
+        return path;
+    }
+
+    @NonNull public String getPathFreqCur() {
+        return path + "scaling_cur_freq";
+    }
+
+    @NonNull public String getPathFreqMax() {
+        return path + "scaling_max_freq";
+    }
+
+    @NonNull public String getPathFreqMin() {
+        return path + "scaling_min_freq";
+    }
+
+    @NonNull public String getPathCpuinfoFreqMax() {
+        return path + "cpuinfo_max_freq";
+    }
+
+    @NonNull public String getPathGov() {
+        return path + "scaling_governor";
+    }
+
+    @NonNull public String getPathTimeInState() {
+        return path + "stats/time_in_state";
+    }
+
+    @NonNull public String getPathTransTable() {
+        return path + "stats/trans_table";
+    }
+
+    @NonNull public String getPathTotalTrans() {
+        return path + "stats/total_trans";
+    }
+
+    /**
+     * Reads the current values of this policy, one read per value for all of its cores.
+     *
+     * @return A new cluster of the same policy, containing the current values
+     */
+    @WorkerThread @NonNull public CpuCluster read() {
+        final CpuCluster cluster = new CpuCluster(this);
+        cluster.freqCur = HwIoUtils.readSysfsIntValue(getPathFreqCur());
+        cluster.freqMax = HwIoUtils.readSysfsIntValue(getPathFreqMax());
+        cluster.freqMin = HwIoUtils.readSysfsIntValue(getPathFreqMin());
+        final String governor = HwIoUtils.readSysfsFile(getPathGov());
+        cluster.govCur = (!HwUtils.isEmpty(governor) ? governor : Constants.INVALID_STR);
+        return cluster;
+    }
+
+    /**
+     * @param contents The contents of a batched read, containing the paths of this cluster
+     * @return A new cluster of the same policy, containing the values of the given contents
+     */
+    @NonNull CpuCluster fromContents(@NonNull Map<String, String> contents) {
+        final CpuCluster cluster = new CpuCluster(this);
+        cluster.freqCur = HwUtils.tryParseInt(contents.get(getPathFreqCur()));
+        cluster.freqMax = HwUtils.tryParseInt(contents.get(getPathFreqMax()));
+        cluster.freqMin = HwUtils.tryParseInt(contents.get(getPathFreqMin()));
+        final String governor = contents.get(getPathGov());
+        cluster.govCur = (!HwUtils.isEmpty(governor) ? governor : Constants.INVALID_STR);
+        return cluster;
+    }
+
+    @Override public String toString() {
+        return String.format("policy: %s | cpus: %s | max: %s | min: %s | current: %s | gov: %s",
+                policy, Arrays.toString(cpus), freqMax, freqMin, freqCur, govCur);
+    }
+}
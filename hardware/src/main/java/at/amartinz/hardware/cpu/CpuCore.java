@@ -32,6 +32,7 @@ public class CpuCore {
     public int max;
     public int current;
     public String governor;
+    public boolean online = true;
 
     public CpuCore(int core, String current, String max, String governor) {
         setCore(core);
@@ -55,12 +56,28 @@ public class CpuCore {
         return this;
     }
 
+    public CpuCore setCurrent(int current) {
+        this.current = ((current >= 0) ? current : 0);
+        return this;
+    }
+
+    public CpuCore setMax(int max) {
+        this.max = ((max >= 0) ? max : 0);
+        return this;
+    }
+
+    public CpuCore setOnline(boolean online) {
+        this.online = online;
+        return this;
+    }
+
     public CpuCore setGovernor(String governor) {
         this.governor = (!TextUtils.isEmpty(governor) ? governor : "0");
         return this;
     }
 
     @Override public String toString() {
-        return String.format("core: %s | max: %s | current: %s | gov: %s", core, max, current, governor);
+        return String.format("core: %s | online: %s | max: %s | current: %s | gov: %s", core, online, max, current,
+                governor);
     }
 }
@@ -24,45 +24,180 @@
 package at.amartinz.hardware.cpu;
 
 import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
 
-import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+import at.amartinz.hardware.Constants;
+import at.amartinz.hardware.utils.HwIoUtils;
+import at.amartinz.hardware.utils.HwUtils;
+import at.amartinz.hardware.utils.SysfsHandle;
+import at.amartinz.hardware.utils.SysfsWatcher;
 import at.amartinz.execution.Command;
 import at.amartinz.execution.Shell;
 import at.amartinz.execution.ShellManager;
 
+/**
+ * Samples the current frequency, max frequency and governor of every core.
+ * <p>
+ * Cores get sampled on a dedicated thread by rereading persistent {@link SysfsHandle}s.
+ * Only cores, whose nodes exist but are not readable, get sampled via a root shell command.
+ * <p>
+ * Multiple listeners can {@link #subscribe(SnapshotListener, int, int, Executor) subscribe}, each with
+ * its own interval and executor. One sampling loop runs at the fastest requested interval and every
+ * subscriber only gets the ticks matching its own interval.
+ * <p>
+ * Every tick gets sampled into a pooled {@link CpuCoreSnapshot}, which gets published by swapping
+ * the reference to the latest snapshot. Listeners always see a consistent tick and the sampler only
+ * reuses snapshots, which are not being delivered anymore. If a listener is slower than its interval,
+ * it only gets the latest snapshot.
+ * <p>
+ * When subscribed with a minimum and maximum interval, the interval doubles with every tick without
+ * any change of a frequency or governor, up to the maximum, and snaps back to the minimum as soon as
+ * a change got detected.
+ * <p>
+ * If a {@link UtilizationListener} is set, the utilization of the cores gets sampled on the same
+ * ticks and reported right after the cores.
+ * <p>
+ * The online cpus get reread from /sys/devices/system/cpu/online on every tick. Offline cores do not
+ * get read at all and are marked as offline within the snapshots, a {@link HotplugListener} gets
+ * notified whenever the online cpus change.
+ * <p>
+ * Governors of cores, which can be read directly, only change by writes from user space. They get
+ * watched by the {@link SysfsWatcher} instead of being read on every tick, a change triggers a tick
+ * right away.
+ */
 public class CpuCoreMonitor {
+    private static final String TAG = CpuCoreMonitor.class.getSimpleName();
+
+    // published, sampling and one per slow listener without allocating
+    private static final int POOL_SIZE = 4;
+
+    // a root read, which did not complete by then, gets abandoned and its cores marked invalid
+    private static final long ROOT_READ_TIMEOUT = 5000;
+
     private static CpuCoreMonitor cpuFrequencyMonitor;
 
     private final Handler handler;
-    private final int cpuCount;
-    private final List<CpuCore> coreList = new ArrayList<>();
+    private final int[] cpuIds;
+
+    private final AtomicReference<CpuCoreSnapshot> published = new AtomicReference<>();
+    // only accessed on the sampler thread
+    private final ArrayList<CpuCoreSnapshot> snapshotPool = new ArrayList<>(POOL_SIZE);
+    private CpuCoreSnapshot sampling;
+    // the current tick waits for a root read, which fills the rest of the sampling snapshot
+    private boolean isRootReadPending;
+    // identifies the pending root read, results of older ones get dropped
+    private int rootReadId;
+    // the indices of the cores of the pending root read
+    private int[] rootReadIndices;
+    private int rootReadCount;
+
+    private final SysfsHandle[] freqCurHandles;
+    private final SysfsHandle[] freqMaxHandles;
+    private final SysfsHandle[] govHandles;
+    // governor watches of the online cores, which can be read directly
+    private final SysfsWatcher.Watch[] govWatches;
+    private final boolean[] needsRoot;
+    private boolean anyNeedsRoot;
+
+    // only accessed on the sampler thread
+    private final SysfsHandle onlineHandle;
+    private final boolean[] online;
+    private String lastOnline;
 
+    private HandlerThread samplerThread;
+    private Handler samplerHandler;
     private Shell shell;
 
-    private CoreListener listener;
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Executor handlerExecutor;
+    private volatile UtilizationListener utilizationListener;
+    private volatile HotplugListener hotplugListener;
+
+    // the listener registered through start(), which gets replaced by the next start() and removed by stop()
+    private CoreListener legacyListener;
+
+    // only accessed on the sampler thread
     private int interval;
 
-    private boolean isStarted = false;
+    // the last read governor per core, to intern it only when it changes
+    private final String[] lastGovernor;
+    private final int[] lastGovernorId;
+
+    private CpuUtilizationSampler utilizationSampler;
+
+    // the utilization is double buffered, the sampler thread only fills a buffer which is neither
+    // pending nor being delivered, the publisher frees a buffer once the listener returned
+    private final CpuUtilization[] utilizationBuffers = new CpuUtilization[2];
+    private final AtomicBoolean[] utilizationBusy = { new AtomicBoolean(), new AtomicBoolean() };
+    private final AtomicInteger pendingUtilization = new AtomicInteger(Constants.INVALID);
+
+    private volatile boolean isStarted = false;
+    // guarded by this
+    private boolean isDestroyed;
 
     public interface CoreListener {
         void onCores(@NonNull final List<CpuCore> cores);
     }
 
+    public interface SnapshotListener {
+        /**
+         * @param snapshot The snapshot, which must not be kept beyond this call, see {@link CpuCoreSnapshot#copy()}
+         */
+        void onSnapshot(@NonNull final CpuCoreSnapshot snapshot);
+    }
+
+    public interface UtilizationListener {
+        void onUtilization(@NonNull final CpuUtilization utilization);
+    }
+
+    public interface HotplugListener {
+        /**
+         * @param onlineCpus The ids of the cpus, which are online now
+         */
+        void onOnlineCpusChanged(@NonNull final BitSet onlineCpus);
+    }
+
     private CpuCoreMonitor(final Handler handler) {
         this.handler = handler;
-        this.cpuCount = CpuReader.readAvailableCores();
-        getShell();
+        this.handlerExecutor = toExecutor(handler);
+        this.cpuIds = CpuReader.readPresentCpuIds();
 
-        for (int i = 0; i < cpuCount; i++) {
-            coreList.add(new CpuCore(i, "0", "0", "0"));
+        final int count = cpuIds.length;
+        freqCurHandles = new SysfsHandle[count];
+        freqMaxHandles = new SysfsHandle[count];
+        govHandles = new SysfsHandle[count];
+        govWatches = new SysfsWatcher.Watch[count];
+        needsRoot = new boolean[count];
+        online = new boolean[count];
+        Arrays.fill(online, true);
+        onlineHandle = SysfsHandle.obtain(CpuReader.getPathOnlineCpus());
+        lastGovernor = new String[count];
+        lastGovernorId = new int[count];
+        Arrays.fill(lastGovernorId, Constants.INVALID);
+        for (int i = 0; i < count; i++) {
+            final int cpu = cpuIds[i];
+            freqCurHandles[i] = SysfsHandle.obtain(CpuReader.getPathCoreFreqCur(cpu));
+            freqMaxHandles[i] = SysfsHandle.obtain(CpuReader.getPathCoreFreqMax(cpu));
+            govHandles[i] = SysfsHandle.obtain(CpuReader.getPathCoreGov(cpu));
         }
     }
 
-    public static CpuCoreMonitor getInstance(@NonNull final Handler handler) {
+    public static synchronized CpuCoreMonitor getInstance(@NonNull final Handler handler) {
         if (cpuFrequencyMonitor == null) {
             cpuFrequencyMonitor = new CpuCoreMonitor(handler);
         }
@@ -74,135 +209,740 @@ public class CpuCoreMonitor {
     }
 
     public CpuCoreMonitor start(final CoreListener listener, final int interval) {
-        this.listener = listener;
-        this.interval = interval;
-        if (!isStarted) {
-            isStarted = true;
-            handler.post(mUpdater);
+        return start(listener, interval, interval);
+    }
+
+    /**
+     * Subscribes the given listener with an adaptive interval, it gets called on the handler of this monitor.
+     * It replaces the listener of a previous call to start.
+     *
+     * @see #subscribe(CoreListener, int, int, Executor)
+     */
+    public CpuCoreMonitor start(final CoreListener listener, final int minInterval, final int maxInterval) {
+        final CoreListener previous;
+        synchronized (subscribers) {
+            previous = legacyListener;
+            legacyListener = listener;
         }
+        if (previous != null && previous != listener) {
+            unsubscribe(previous);
+        }
+        return subscribe(listener, minInterval, maxInterval, handlerExecutor);
+    }
 
-        return cpuFrequencyMonitor;
+    /**
+     * @see #subscribe(SnapshotListener, int, int, Executor)
+     */
+    public CpuCoreMonitor subscribe(@NonNull final CoreListener listener, final int minInterval, final int maxInterval,
+            @NonNull final Handler handler) {
+        return subscribe(listener, minInterval, maxInterval, toExecutor(handler));
+    }
+
+    /**
+     * Subscribes a listener, which gets the cores as list. The list and its elements get reused for every
+     * call, so the executor should call the listener on one thread.
+     *
+     * @see #subscribe(SnapshotListener, int, int, Executor)
+     */
+    public CpuCoreMonitor subscribe(@NonNull final CoreListener listener, final int minInterval, final int maxInterval,
+            @NonNull final Executor executor) {
+        return subscribe(listener, new CoreListenerAdapter(listener), minInterval, maxInterval, executor);
+    }
+
+    /**
+     * @see #subscribe(SnapshotListener, int, int, Executor)
+     */
+    public CpuCoreMonitor subscribe(@NonNull final SnapshotListener listener, final int minInterval,
+            final int maxInterval, @NonNull final Handler handler) {
+        return subscribe(listener, minInterval, maxInterval, toExecutor(handler));
     }
 
-    public CpuCoreMonitor stop() {
+    /**
+     * Subscribes the given listener or updates its subscription, if it is already subscribed.
+     *
+     * @param minInterval The interval after a change got detected, in milliseconds
+     * @param maxInterval The interval, which gets backed off to while nothing changes, in milliseconds,
+     *                    use the minimum interval for a fixed interval
+     * @param executor    The executor to call the listener on
+     */
+    public CpuCoreMonitor subscribe(@NonNull final SnapshotListener listener, final int minInterval,
+            final int maxInterval, @NonNull final Executor executor) {
+        return subscribe(listener, listener, minInterval, maxInterval, executor);
+    }
+
+    private CpuCoreMonitor subscribe(@NonNull final Object key, @NonNull final SnapshotListener listener,
+            final int minInterval, final int maxInterval, @NonNull final Executor executor) {
+        if (isDestroyed()) {
+            if (Constants.DEBUG) {
+                Log.w(TAG, "subscribing to a destroyed monitor, use getInstance() to get a new one");
+            }
+            return this;
+        }
+        final Subscriber subscriber = new Subscriber(key, listener, minInterval, Math.max(minInterval, maxInterval),
+                executor);
+        synchronized (subscribers) {
+            final Subscriber existing = findSubscriber(key);
+            if (existing != null) {
+                existing.cancel();
+                subscribers.remove(existing);
+            }
+            subscribers.add(subscriber);
+
+            // check and start within the lock, so only one starter gets posted
+            if (!isStarted) {
+                isStarted = true;
+                postToSampler(mStarter, 0);
+            } else {
+                // sample right away, the new subscriber might want a faster interval
+                removeFromSampler(mUpdater);
+                postToSampler(mUpdater, 0);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Unsubscribes the given listener, sampling stops with the last subscriber.
+     *
+     * @param listener The {@link CoreListener} or {@link SnapshotListener} to unsubscribe
+     */
+    public CpuCoreMonitor unsubscribe(@Nullable final Object listener) {
+        synchronized (subscribers) {
+            final Subscriber existing = findSubscriber(listener);
+            if (existing != null) {
+                existing.cancel();
+                subscribers.remove(existing);
+            }
+            if (legacyListener == listener) {
+                legacyListener = null;
+            }
+            if (subscribers.isEmpty()) {
+                stopSampling();
+            }
+        }
+        return this;
+    }
+
+    @Nullable private Subscriber findSubscriber(@Nullable final Object key) {
+        for (final Subscriber subscriber : subscribers) {
+            if (subscriber.key == key) {
+                return subscriber;
+            }
+        }
+        return null;
+    }
+
+    @NonNull private static Executor toExecutor(@NonNull final Handler handler) {
+        return new Executor() {
+            @Override public void execute(@NonNull Runnable command) {
+                handler.post(command);
+            }
+        };
+    }
+
+    /**
+     * @param utilizationListener The listener, which gets called after every tick of the core listener,
+     *                            or null to stop sampling the utilization
+     */
+    public CpuCoreMonitor setUtilizationListener(@Nullable final UtilizationListener utilizationListener) {
+        this.utilizationListener = utilizationListener;
+        return this;
+    }
+
+    /**
+     * @param hotplugListener The listener, which gets called on the handler of this monitor whenever
+     *                        cpus go online or offline, or null to remove it
+     */
+    public CpuCoreMonitor setHotplugListener(@Nullable final HotplugListener hotplugListener) {
+        this.hotplugListener = hotplugListener;
+        return this;
+    }
+
+    /**
+     * @return The snapshot of the latest tick or null if nothing got sampled yet, the returned
+     * snapshot is a copy and may be kept
+     */
+    @Nullable public CpuCoreSnapshot getSnapshot() {
+        while (true) {
+            final CpuCoreSnapshot snapshot = published.get();
+            if (snapshot == null) {
+                return null;
+            }
+            snapshot.acquire();
+            try {
+                // it might have been swapped out and reused before we acquired it
+                if (published.get() == snapshot) {
+                    return snapshot.copy();
+                }
+            } finally {
+                snapshot.release();
+            }
+        }
+    }
+
+    /**
+     * Unsubscribes the listener, which got registered through {@link #start(CoreListener, int, int)}.
+     * Other subscribers keep getting updates.
+     *
+     * @deprecated use {@link #unsubscribe(Object)}
+     */
+    @Deprecated public CpuCoreMonitor stop() {
+        final CoreListener listener;
+        synchronized (subscribers) {
+            listener = legacyListener;
+            legacyListener = null;
+        }
+        if (listener != null) {
+            unsubscribe(listener);
+        }
+        return this;
+    }
+
+    /**
+     * Has to be called while holding the lock of the subscribers, like starting within subscribe.
+     */
+    private void stopSampling() {
         if (isStarted) {
             isStarted = false;
-            listener = null;
-            handler.removeCallbacks(mUpdater);
+            removeFromSampler(mStarter);
+            removeFromSampler(mUpdater);
+            unwatchGovernors();
         }
-        return cpuFrequencyMonitor;
     }
 
+    /**
+     * Unsubscribes all listeners, stops sampling and quits the sampler thread.
+     */
     public void destroy() {
-        stop();
-        cpuFrequencyMonitor = null;
+        synchronized (subscribers) {
+            for (final Subscriber subscriber : subscribers) {
+                subscriber.cancel();
+            }
+            subscribers.clear();
+            legacyListener = null;
+            stopSampling();
+        }
+        synchronized (this) {
+            isDestroyed = true;
+            if (samplerThread != null) {
+                samplerThread.quit();
+                samplerThread = null;
+                samplerHandler = null;
+            }
+        }
+        synchronized (CpuCoreMonitor.class) {
+            if (cpuFrequencyMonitor == this) {
+                cpuFrequencyMonitor = null;
+            }
+        }
+    }
+
+    private synchronized boolean isDestroyed() {
+        return isDestroyed;
+    }
+
+    /**
+     * @return The handler of the sampler thread, which gets started if needed, or null if this monitor
+     * got destroyed
+     */
+    @Nullable private synchronized Handler getSamplerHandler() {
+        if (isDestroyed) {
+            // late callbacks, eg. of root reads or watches, must not start a new thread
+            return null;
+        }
+        if (samplerHandler == null) {
+            samplerThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+            samplerThread.start();
+            samplerHandler = new Handler(samplerThread.getLooper());
+        }
+        return samplerHandler;
     }
 
+    private synchronized void postToSampler(@NonNull final Runnable runnable, final long delay) {
+        final Handler samplerHandler = getSamplerHandler();
+        if (samplerHandler != null) {
+            samplerHandler.postDelayed(runnable, delay);
+        }
+    }
+
+    private synchronized void removeFromSampler(@NonNull final Runnable runnable) {
+        if (samplerHandler != null) {
+            samplerHandler.removeCallbacks(runnable);
+        }
+    }
+
+    private final Runnable mStarter = new Runnable() {
+        @Override public void run() {
+            lastOnline = null;
+            readOnline();
+            checkNeedsRoot();
+            watchGovernors();
+            if (utilizationSampler != null) {
+                // do not report the utilization since the last stop
+                utilizationSampler.reset();
+            }
+            updateStates();
+        }
+    };
+
     private final Runnable mUpdater = new Runnable() {
         @Override public void run() {
             updateStates();
         }
     };
 
+    private final Runnable mUtilizationPublisher = new Runnable() {
+        @Override public void run() {
+            final int index = pendingUtilization.getAndSet(Constants.INVALID);
+            if (index == Constants.INVALID) {
+                return;
+            }
+            try {
+                final UtilizationListener utilListener = utilizationListener;
+                if (utilListener != null) {
+                    utilListener.onUtilization(utilizationBuffers[index]);
+                }
+            } finally {
+                utilizationBusy[index].set(false);
+            }
+        }
+    };
+
     private Shell getShell() {
         if (shell == null || shell.isClosed() || shell.shouldClose()) {
-            final boolean shouldUseRoot = shouldUseRoot();
-            if (shouldUseRoot) {
-                shell = ShellManager.get().getRootShell();
-            } else {
-                shell = ShellManager.get().getNormalShell();
-            }
+            shell = ShellManager.get().getRootShell();
         }
         return shell;
     }
 
-    private boolean shouldUseRoot() {
-        for (int i = 0; i < cpuCount; i++) {
-            final String[] paths = new String[]{
-                    CpuReader.getPathCoreFreqCur(i),
-                    CpuReader.getPathCoreFreqMax(i),
-                    CpuReader.getPathCoreFreqMin(i),
-                    CpuReader.getPathCoreGov(i)
-            };
-            for (final String path : paths) {
-                if (!(new File(path).canRead())) {
-                    return true;
+    /**
+     * Checks once per start and after cpus went online, which cores have nodes we can not read directly.
+     * Missing nodes, eg. of cores without cpufreq, do not need root.
+     */
+    private void checkNeedsRoot() {
+        final boolean rootAvailable = HwIoUtils.isRootAvailable();
+        anyNeedsRoot = false;
+        for (int i = 0; i < cpuIds.length; i++) {
+            needsRoot[i] = rootAvailable && (needsRoot(freqCurHandles[i])
+                                             || needsRoot(freqMaxHandles[i]) || needsRoot(govHandles[i]));
+            anyNeedsRoot |= needsRoot[i];
+        }
+        if (Constants.DEBUG && anyNeedsRoot) {
+            Log.v(TAG, "sampling some cores with root");
+        }
+    }
+
+    /**
+     * (Re)starts the governor watches for the online cores, which do not need root.
+     */
+    private void watchGovernors() {
+        synchronized (govWatches) {
+            unwatchGovernors();
+            final Handler samplerHandler = getSamplerHandler();
+            // sampling might have been stopped after the starter got posted
+            if (!isStarted || samplerHandler == null) {
+                return;
+            }
+            for (int i = 0; i < cpuIds.length; i++) {
+                if (online[i] && !needsRoot[i]) {
+                    govWatches[i] = SysfsWatcher.get().watch(govHandles[i].getPath(), true,
+                            SysfsWatcher.MIN_INTERVAL, SysfsWatcher.MAX_INTERVAL, mGovernorListener, samplerHandler);
+                }
+            }
+        }
+    }
+
+    private void unwatchGovernors() {
+        synchronized (govWatches) {
+            for (int i = 0; i < govWatches.length; i++) {
+                if (govWatches[i] != null) {
+                    govWatches[i].cancel();
+                    govWatches[i] = null;
                 }
             }
         }
-        return false;
+    }
+
+    private final SysfsWatcher.ChangeListener mGovernorListener = new SysfsWatcher.ChangeListener() {
+        @Override public void onChanged(@NonNull String path, @Nullable String value) {
+            // called on the sampler thread, report the new governor right away
+            if (isStarted) {
+                removeFromSampler(mUpdater);
+                updateStates();
+            }
+        }
+    };
+
+    private static boolean needsRoot(final SysfsHandle handle) {
+        final String path = handle.getPath();
+        return HwIoUtils.fileExists(path) && !HwIoUtils.canRead(path);
     }
 
     private void updateStates() {
-        if (getShell() == null) {
+        if (!isStarted || isRootReadPending) {
+            // a pending root read finishes the current tick and schedules the next one
             return;
         }
 
-        final StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < cpuCount; i++) {
-            // if cpufreq directory exists ...
-            sb.append("if [ -d \"/sys/devices/system/cpu/cpu").append(String.valueOf(i)).append("/cpufreq\" ]; then\n");
-            // cat /path/to/cpu/frequency
-            sb.append(String.format("(cat \"%s\") 2> /dev/null;\n", CpuReader.getPathCoreFreqCur(i)));
-            sb.append("echo -n \" \";");
-            // cat /path/to/cpu/frequency_max
-            sb.append(String.format("(cat \"%s\") 2> /dev/null;\n", CpuReader.getPathCoreFreqMax(i)));
-            sb.append("echo -n \" \";");
-            // cat /path/to/cpu/governor
-            sb.append(String.format("(cat \"%s\") 2> /dev/null;\n", CpuReader.getPathCoreGov(i)));
-            // ... else echo 0 for them
-            sb.append("else echo \"0 0 0\";fi;");
-            // ... and append a space on the end
-            sb.append("echo -n \" \";");
+        if (readOnline()) {
+            // nodes of cpus, which just came online, might need root
+            checkNeedsRoot();
+            watchGovernors();
         }
 
-        // example output: 162000 1890000 interactive
-        final String cmd = sb.toString();
-        final Command command = new Command(cmd) {
-            @Override public void onCommandCompleted(int id, int exitCode) {
-                super.onCommandCompleted(id, exitCode);
+        sampling = obtainSnapshot();
+        boolean readRoot = false;
+        for (int i = 0; i < cpuIds.length; i++) {
+            sampling.online[i] = online[i];
+            if (!online[i]) {
+                setCore(i, Constants.INVALID, Constants.INVALID, null);
+            } else if (needsRoot[i]) {
+                readRoot = true;
+            } else {
+                readDirect(i);
+            }
+        }
 
-                String output = getOutput();
-                if (output == null) {
-                    return;
+        if (readRoot) {
+            if (getShell() != null) {
+                readWithRoot();
+                return;
+            }
+            // pooled snapshots still hold the values of an older tick
+            for (int i = 0; i < cpuIds.length; i++) {
+                if (online[i] && needsRoot[i]) {
+                    setCore(i, Constants.INVALID, Constants.INVALID, null);
                 }
-                output = output.replace("\n", " ");
-
-                final String[] parts = output.split(" ");
-                int mult = 0;
-                for (int i = 0; i < cpuCount; i++) {
-                    CpuCore cpuCore;
-                    try {
-                        cpuCore = coreList.get(i);
-                    } catch (IndexOutOfBoundsException iobe) {
-                        cpuCore = new CpuCore(i, "0", "0", "0");
+            }
+        }
+        onSampled();
+    }
+
+    /**
+     * Rereads the online cpus, the node only gets parsed if it changed.
+     *
+     * @return True if the online cpus changed
+     */
+    private boolean readOnline() {
+        final String onlineCpus = onlineHandle.readStringReusing(lastOnline);
+        if (onlineCpus == null || onlineCpus == lastOnline) {
+            // without the node, cores count as online and offline ones simply do not read
+            return false;
+        }
+        lastOnline = onlineCpus;
+
+        final BitSet onlineSet = CpuList.parse(onlineCpus);
+        boolean changed = false;
+        for (int i = 0; i < cpuIds.length; i++) {
+            final boolean isOnline = onlineSet.get(cpuIds[i]);
+            changed |= (online[i] != isOnline);
+            online[i] = isOnline;
+        }
+        if (changed) {
+            if (Constants.DEBUG) {
+                Log.v(TAG, String.format("online cpus changed -> %s", onlineCpus));
+            }
+            final HotplugListener listener = hotplugListener;
+            if (listener != null) {
+                handler.post(new Runnable() {
+                    @Override public void run() {
+                        listener.onOnlineCpusChanged(onlineSet);
                     }
-                    try {
-                        cpuCore.setCurrent(parts[i + mult])
-                                .setMax(parts[i + mult + 1])
-                                .setGovernor(parts[i + mult + 2]);
-                    } catch (IndexOutOfBoundsException iob) {
-                        cpuCore.setCurrent("0").setMax("0").setGovernor("0");
+                });
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return A snapshot, which is neither published nor being delivered
+     */
+    private CpuCoreSnapshot obtainSnapshot() {
+        final CpuCoreSnapshot current = published.get();
+        for (int i = 0; i < snapshotPool.size(); i++) {
+            final CpuCoreSnapshot snapshot = snapshotPool.get(i);
+            if (snapshot != current && !snapshot.isReferenced()) {
+                return snapshot;
+            }
+        }
+        final CpuCoreSnapshot snapshot = new CpuCoreSnapshot(cpuIds);
+        if (snapshotPool.size() < POOL_SIZE) {
+            snapshotPool.add(snapshot);
+        }
+        return snapshot;
+    }
+
+    private void readDirect(final int index) {
+        final int current = freqCurHandles[index].readInt();
+        if (current == SysfsHandle.INVALID_INT) {
+            // the core does not have cpufreq or just went offline
+            setCore(index, Constants.INVALID, Constants.INVALID, null);
+            return;
+        }
+        final SysfsWatcher.Watch watch = govWatches[index];
+        String governor = ((watch != null) ? watch.getValue() : null);
+        if (governor == null) {
+            // not watched or the watch did not read it yet
+            governor = govHandles[index].readStringReusing(lastGovernor[index]);
+        }
+        setCore(index, current, freqMaxHandles[index].readInt(), governor);
+    }
+
+    private void setCore(final int index, final int current, final int max, @Nullable final String governor) {
+        sampling.current[index] = ((current >= 0) ? current : Constants.INVALID);
+        sampling.max[index] = ((max >= 0) ? max : Constants.INVALID);
+        if (governor != lastGovernor[index]) {
+            lastGovernor[index] = governor;
+            lastGovernorId[index] = CpuCoreSnapshot.getGovernorId(governor);
+        }
+        sampling.governorIds[index] = lastGovernorId[index];
+    }
+
+    private void readWithRoot() {
+        // only online cores, which need root, one line per core
+        final int[] indices = new int[cpuIds.length];
+        int count = 0;
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < cpuIds.length; i++) {
+            if (!online[i] || !needsRoot[i]) {
+                continue;
+            }
+            final int cpu = cpuIds[i];
+            indices[count++] = i;
+            sb.append(String.format("echo \"$(cat '%s' 2>/dev/null || echo -1) $(cat '%s' 2>/dev/null || echo -1) "
+                                    + "$(cat '%s' 2>/dev/null || echo 0)\";\n", CpuReader.getPathCoreFreqCur(cpu),
+                    CpuReader.getPathCoreFreqMax(cpu), CpuReader.getPathCoreGov(cpu)));
+        }
+        final int id = ++rootReadId;
+        final int rootCount = count;
+
+        // example output: 162000 1890000 interactive
+        final Command command = new Command(sb.toString()) {
+            @Override public void onCommandCompleted(int commandId, int exitCode) {
+                super.onCommandCompleted(commandId, exitCode);
+
+                // parse on the shell thread, but only touch the snapshot on the sampler thread
+                final int[] currents = new int[rootCount];
+                final int[] maxs = new int[rootCount];
+                final String[] governors = new String[rootCount];
+                final String output = getOutput();
+                final String[] lines = ((output != null) ? output.trim().split("\n") : new String[0]);
+                for (int i = 0; i < rootCount; i++) {
+                    final String[] parts = ((i < lines.length) ? lines[i].trim().split(" ") : null);
+                    if (parts != null && parts.length == 3) {
+                        currents[i] = HwUtils.tryParseInt(parts[0]);
+                        maxs[i] = HwUtils.tryParseInt(parts[1]);
+                        governors[i] = ("0".equals(parts[2]) ? null : parts[2]);
+                    } else {
+                        currents[i] = Constants.INVALID;
+                        maxs[i] = Constants.INVALID;
+                        governors[i] = null;
                     }
-                    mult += 2;
                 }
+                postRootRead(id, currents, maxs, governors);
+            }
 
-                if (listener != null) {
-                    handler.post(new Runnable() {
-                        @Override public void run() {
-                            if (listener != null) {
-                                listener.onCores(coreList);
-                            }
-                        }
-                    });
+            @Override public void onCommandTerminated(int commandId, String reason) {
+                super.onCommandTerminated(commandId, reason);
+                if (Constants.DEBUG) {
+                    Log.w(TAG, String.format("root read got terminated -> %s", reason));
                 }
-
-                handler.removeCallbacks(mUpdater);
-                handler.postDelayed(mUpdater, interval);
+                postRootRead(id, null, null, null);
             }
         };
         command.setOutputType(Command.OUTPUT_STRING);
+        isRootReadPending = true;
+        rootReadIndices = indices;
+        rootReadCount = rootCount;
+        postToSampler(mRootReadTimeout, ROOT_READ_TIMEOUT);
         getShell().add(command);
     }
 
+    private void postRootRead(final int id, @Nullable final int[] currents, @Nullable final int[] maxs,
+            @Nullable final String[] governors) {
+        postToSampler(new Runnable() {
+            @Override public void run() {
+                finishRootRead(id, currents, maxs, governors);
+            }
+        }, 0);
+    }
+
+    private final Runnable mRootReadTimeout = new Runnable() {
+        @Override public void run() {
+            if (Constants.DEBUG) {
+                Log.w(TAG, "root read timed out");
+            }
+            finishRootRead(rootReadId, null, null, null);
+        }
+    };
+
+    /**
+     * Fills the cores of the pending root read and finishes the tick, without results the cores get
+     * marked invalid. Called on the sampler thread.
+     */
+    private void finishRootRead(final int id, @Nullable final int[] currents, @Nullable final int[] maxs,
+            @Nullable final String[] governors) {
+        if (!isRootReadPending || id != rootReadId) {
+            // already finished, eg. by the timeout
+            return;
+        }
+        removeFromSampler(mRootReadTimeout);
+        for (int i = 0; i < rootReadCount; i++) {
+            if (currents != null && maxs != null && governors != null) {
+                setCore(rootReadIndices[i], currents[i], maxs[i], governors[i]);
+            } else {
+                setCore(rootReadIndices[i], Constants.INVALID, Constants.INVALID, null);
+            }
+        }
+        isRootReadPending = false;
+        onSampled();
+    }
+
+    /**
+     * @return true if a new utilization got queued for the publisher
+     */
+    private boolean sampleUtilization() {
+        if (utilizationListener == null) {
+            if (utilizationSampler != null) {
+                utilizationSampler.reset();
+                utilizationSampler = null;
+            }
+            return false;
+        }
+        if (utilizationSampler == null) {
+            utilizationSampler = new CpuUtilizationSampler(cpuIds);
+            for (int i = 0; i < utilizationBuffers.length; i++) {
+                if (utilizationBuffers[i] == null) {
+                    utilizationBuffers[i] = new CpuUtilization(cpuIds);
+                }
+            }
+        }
+
+        // take back a buffer the publisher did not pick up yet, else use the one not in delivery
+        int index = pendingUtilization.getAndSet(Constants.INVALID);
+        if (index == Constants.INVALID) {
+            index = utilizationBusy[0].get() ? 1 : 0;
+            utilizationBusy[index].set(true);
+        }
+
+        if (!utilizationSampler.sample(utilizationBuffers[index])) {
+            utilizationBusy[index].set(false);
+            return false;
+        }
+        pendingUtilization.set(index);
+        return true;
+    }
+
+    private void onSampled() {
+        if (!isStarted) {
+            return;
+        }
+        final CpuCoreSnapshot snapshot = sampling;
+        snapshot.timestamp = SystemClock.uptimeMillis();
+        final boolean changed = !snapshot.contentEquals(published.get());
+        published.set(snapshot);
+
+        if (sampleUtilization()) {
+            handler.post(mUtilizationPublisher);
+        }
+
+        // the loop runs at the fastest interval and must not back off beyond any maximum
+        int minInterval = Integer.MAX_VALUE;
+        int maxInterval = Integer.MAX_VALUE;
+        final long now = snapshot.timestamp;
+        for (final Subscriber subscriber : subscribers) {
+            subscriber.deliverIfDue(now, snapshot);
+            minInterval = Math.min(minInterval, subscriber.minInterval);
+            maxInterval = Math.min(maxInterval, subscriber.maxInterval);
+        }
+        if (minInterval == Integer.MAX_VALUE) {
+            return;
+        }
+
+        if (changed) {
+            interval = minInterval;
+        } else {
+            interval = ((interval > maxInterval / 2) ? maxInterval : Math.max(1, interval * 2));
+        }
+        interval = Math.max(minInterval, Math.min(interval, maxInterval));
+        removeFromSampler(mUpdater);
+        postToSampler(mUpdater, interval);
+    }
+
+    private static class Subscriber {
+        private final Object key;
+        private final SnapshotListener listener;
+        private final int minInterval;
+        private final int maxInterval;
+        private final Executor executor;
+
+        // the snapshot waiting for delivery, a slow listener only gets the latest one
+        private final AtomicReference<CpuCoreSnapshot> pending = new AtomicReference<>();
+        private long lastDelivery;
+        private volatile boolean cancelled;
+
+        private Subscriber(@NonNull Object key, @NonNull SnapshotListener listener, int minInterval, int maxInterval,
+                @NonNull Executor executor) {
+            this.key = key;
+            this.listener = listener;
+            this.minInterval = minInterval;
+            this.maxInterval = maxInterval;
+            this.executor = executor;
+        }
+
+        private void deliverIfDue(final long now, @NonNull final CpuCoreSnapshot snapshot) {
+            // allow a few percent of jitter, so a subscriber at twice the loop interval gets every second tick
+            if (lastDelivery != 0 && (now - lastDelivery) < (minInterval - minInterval / 20)) {
+                return;
+            }
+            lastDelivery = now;
+
+            snapshot.acquire();
+            final CpuCoreSnapshot previous = pending.getAndSet(snapshot);
+            if (previous != null) {
+                // still queued, replace the snapshot instead of queueing again
+                previous.release();
+                return;
+            }
+            executor.execute(delivery);
+        }
+
+        private void cancel() {
+            cancelled = true;
+            final CpuCoreSnapshot previous = pending.getAndSet(null);
+            if (previous != null) {
+                previous.release();
+            }
+        }
+
+        private final Runnable delivery = new Runnable() {
+            @Override public void run() {
+                final CpuCoreSnapshot snapshot = pending.getAndSet(null);
+                if (snapshot == null) {
+                    return;
+                }
+                try {
+                    if (!cancelled) {
+                        listener.onSnapshot(snapshot);
+                    }
+                } finally {
+                    snapshot.release();
+                }
+            }
+        };
+    }
+
+    private static class CoreListenerAdapter implements SnapshotListener {
+        private final CoreListener listener;
+        private final ArrayList<CpuCore> cores = new ArrayList<>();
+
+        private CoreListenerAdapter(@NonNull CoreListener listener) {
+            this.listener = listener;
+        }
+
+        @Override public void onSnapshot(@NonNull CpuCoreSnapshot snapshot) {
+            snapshot.fillCores(cores);
+            listener.onCores(cores);
+        }
+    }
 }
@@ -0,0 +1,214 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.cpu;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import at.amartinz.hardware.Constants;
+
+/**
+ * The frequencies and governors of all cores at one tick of the {@link CpuCoreMonitor}, stored as columns.
+ * <p>
+ * Governors are stored as ids, which are interned process wide, see {@link #getGovernorName(int)}.
+ * Snapshots get pooled by their monitor and must not be modified. They stay untouched while being
+ * delivered to a listener, {@link #copy() copy} them if they need to be kept beyond the callback.
+ */
+public class CpuCoreSnapshot {
+    private static final ArrayList<String> sGovernorNames = new ArrayList<>();
+    private static final HashMap<String, Integer> sGovernorIds = new HashMap<>();
+
+    public final int[] cpuIds;
+
+    public final boolean[] online;
+    // in kHz, Constants.INVALID if the core is offline or does not have cpufreq
+    public final int[] current;
+    public final int[] max;
+    // interned governor ids, Constants.INVALID if the governor could not be read
+    public final int[] governorIds;
+
+    // uptime of the sample, in milliseconds
+    long timestamp;
+
+    // amount of listeners, which currently read this snapshot
+    private final AtomicInteger references = new AtomicInteger();
+
+    CpuCoreSnapshot(@NonNull int[] cpuIds) {
+        this.cpuIds = cpuIds;
+        online = new boolean[cpuIds.length];
+        current = new int[cpuIds.length];
+        max = new int[cpuIds.length];
+        governorIds = new int[cpuIds.length];
+        Arrays.fill(governorIds, Constants.INVALID);
+    }
+
+    /**
+     * @return The id of the given governor, the same governor always gets the same id within the process
+     */
+    public static int getGovernorId(@Nullable String governor) {
+        if (TextUtils.isEmpty(governor)) {
+            return Constants.INVALID;
+        }
+        synchronized (sGovernorIds) {
+            Integer id = sGovernorIds.get(governor);
+            if (id == null) {
+                id = sGovernorNames.size();
+                sGovernorNames.add(governor);
+                sGovernorIds.put(governor, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * @return The governor of the given id or null if the id is not known
+     */
+    @Nullable public static String getGovernorName(int governorId) {
+        synchronized (sGovernorIds) {
+            if (governorId < 0 || governorId >= sGovernorNames.size()) {
+                return null;
+            }
+            return sGovernorNames.get(governorId);
+        }
+    }
+
+    public int size() {
+        return cpuIds.length;
+    }
+
+    /**
+     * @return The uptime of the sample, in milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return The index of the given cpu within the arrays or -1 if it is not contained
+     */
+    public int indexOfCpu(int cpu) {
+        for (int i = 0; i < cpuIds.length; i++) {
+            if (cpuIds[i] == cpu) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The amount of online cores
+     */
+    public int getOnlineCount() {
+        int count = 0;
+        for (final boolean isOnline : online) {
+            if (isOnline) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The governor of the core at the given index or null if it could not be read
+     */
+    @Nullable public String getGovernor(int index) {
+        return getGovernorName(governorIds[index]);
+    }
+
+    /**
+     * @return A detached copy, which does not get reused by the monitor
+     */
+    @NonNull public CpuCoreSnapshot copy() {
+        final CpuCoreSnapshot copy = new CpuCoreSnapshot(cpuIds);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Updates the given list to contain one {@link CpuCore} per core, reusing its elements.
+     */
+    public void fillCores(@NonNull List<CpuCore> cores) {
+        while (cores.size() > cpuIds.length) {
+            cores.remove(cores.size() - 1);
+        }
+        for (int i = 0; i < cpuIds.length; i++) {
+            final CpuCore cpuCore;
+            if (i < cores.size()) {
+                cpuCore = cores.get(i).setCore(cpuIds[i]);
+            } else {
+                cpuCore = new CpuCore(cpuIds[i], "0", "0", "0");
+                cores.add(cpuCore);
+            }
+            cpuCore.setOnline(online[i]).setCurrent(current[i]).setMax(max[i]).setGovernor(getGovernor(i));
+        }
+    }
+
+    void copyFrom(@NonNull CpuCoreSnapshot other) {
+        System.arraycopy(other.online, 0, online, 0, online.length);
+        System.arraycopy(other.current, 0, current, 0, current.length);
+        System.arraycopy(other.max, 0, max, 0, max.length);
+        System.arraycopy(other.governorIds, 0, governorIds, 0, governorIds.length);
+        timestamp = other.timestamp;
+    }
+
+    boolean contentEquals(@Nullable CpuCoreSnapshot other) {
+        return other != null && Arrays.equals(online, other.online) && Arrays.equals(current, other.current) && Arrays.equals(max, other.max)
+               && Arrays.equals(governorIds, other.governorIds);
+    }
+
+    void acquire() {
+        references.incrementAndGet();
+    }
+
+    void release() {
+        references.decrementAndGet();
+    }
+
+    boolean isReferenced() {
+        return references.get() > 0;
+    }
+
+    @Override public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < cpuIds.length; i++) {
+            if (i > 0) {
+                sb.append(" | ");
+            }
+            if (online[i]) {
+                sb.append(String.format("cpu%s: %s / %s (%s)", cpuIds[i], current[i], max[i], getGovernor(i)));
+            } else {
+                sb.append(String.format("cpu%s: offline", cpuIds[i]));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.cpu;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import at.amartinz.hardware.Constants;
+import at.amartinz.hardware.utils.HwIoUtils;
+import at.amartinz.hardware.utils.RootWriteQueue;
+
+/**
+ * A snapshot of the active governor and its tunables, eg. hispeed_freq or target_loads, of every cpufreq policy.
+ * <p>
+ * Tunables live in the directory of the governor within the policy, or in a global directory if the
+ * governor does not have tunables per policy. Snapshots can be {@link #diff(CpuGovernorTunables) diffed}
+ * and {@link #restore(RootWriteQueue.WriteListener) restored}, restoring reads the current values and
+ * only writes the differing ones with one batched root write.
+ * <pre>
+ * final CpuGovernorTunables before = CpuGovernorTunables.read();
+ * // tune
+ * final List&lt;CpuGovernorTunables.Change&gt; changes = before.diff(CpuGovernorTunables.read());
+ * before.restore(null);
+ * </pre>
+ */
+public class CpuGovernorTunables {
+    private static final String TAG = CpuGovernorTunables.class.getSimpleName();
+
+    private static final String PATH_CPUFREQ = "/sys/devices/system/cpu/cpufreq/";
+    private static final String NAME_GOVERNOR = "scaling_governor";
+
+    /**
+     * A tunable of the governor of a policy, or the governor itself.
+     */
+    public static class Tunable {
+        public final int policy;
+        public final String governor;
+        public final String name;
+        public final String path;
+        public final String value;
+        // false for nodes, which only report a value, eg. sampling_rate_min
+        public final boolean writable;
+
+        private Tunable(int policy, @NonNull String governor, @NonNull String name, @NonNull String path,
+                @NonNull String value, boolean writable) {
+            this.policy = policy;
+            this.governor = governor;
+            this.name = name;
+            this.path = path;
+            this.value = value;
+            this.writable = writable;
+        }
+
+        public boolean isGovernor() {
+            return NAME_GOVERNOR.equals(name);
+        }
+
+        @NonNull @Override public String toString() {
+            return String.format("policy%s %s/%s: %s", policy, governor, name, value);
+        }
+    }
+
+    /**
+     * A value, which differs between two snapshots.
+     */
+    public static class Change {
+        public final int policy;
+        public final String name;
+        public final String path;
+        // null if the tunable does not exist within the older snapshot
+        @Nullable public final String oldValue;
+        // null if the tunable does not exist within the newer snapshot
+        @Nullable public final String newValue;
+
+        private Change(int policy, @NonNull String name, @NonNull String path, @Nullable String oldValue,
+                @Nullable String newValue) {
+            this.policy = policy;
+            this.name = name;
+            this.path = path;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        @NonNull @Override public String toString() {
+            return String.format("policy%s %s: %s -> %s", policy, name, oldValue, newValue);
+        }
+    }
+
+    // governors first, followed by their tunables, ordered by policy and name
+    private final LinkedHashMap<String, Tunable> tunables;
+
+    private CpuGovernorTunables(@NonNull LinkedHashMap<String, Tunable> tunables) {
+        this.tunables = tunables;
+    }
+
+    /**
+     * Reads the governors and all of their readable tunables of all policies.
+     */
+    @WorkerThread @NonNull public static CpuGovernorTunables read() {
+        return read(CpuTopology.getClusters());
+    }
+
+    /**
+     * Reads the governors and all of their readable tunables of the given policies.
+     * <p>
+     * The governors get read with one batched read, followed by one batched read for all tunables.
+     * Tunables, which can not be read directly, get read with one root command if root is available.
+     */
+    @WorkerThread @NonNull public static CpuGovernorTunables read(@NonNull List<CpuCluster> clusters) {
+        final String[] governorPaths = new String[clusters.size()];
+        for (int i = 0; i < governorPaths.length; i++) {
+            governorPaths[i] = clusters.get(i).getPathGov();
+        }
+        final Map<String, String> governors = HwIoUtils.readFiles(governorPaths);
+
+        // discover the tunables of the active governors
+        final ArrayList<String> paths = new ArrayList<>();
+        final ArrayList<List<String>> tunablePaths = new ArrayList<>(clusters.size());
+        for (int i = 0; i < clusters.size(); i++) {
+            final String governor = governors.get(governorPaths[i]);
+            final List<String> policyPaths = (TextUtils.isEmpty(governor)
+                    ? Collections.<String>emptyList() : discoverTunables(clusters.get(i), governor));
+            tunablePaths.add(policyPaths);
+            paths.addAll(policyPaths);
+        }
+
+        final Map<String, String> contents = HwIoUtils.readFiles(paths.toArray(new String[paths.size()]));
+        if (contents.size() < paths.size() && HwIoUtils.isRootAvailable()) {
+            final ArrayList<String> missing = new ArrayList<>();
+            for (final String path : paths) {
+                if (!contents.containsKey(path)) {
+                    missing.add(path);
+                }
+            }
+            contents.putAll(HwIoUtils.readFilesRootBlocking(missing.toArray(new String[missing.size()])));
+        }
+
+        final LinkedHashMap<String, Tunable> tunables = new LinkedHashMap<>();
+        for (int i = 0; i < clusters.size(); i++) {
+            final int policy = clusters.get(i).policy;
+            final String governor = governors.get(governorPaths[i]);
+            if (TextUtils.isEmpty(governor)) {
+                continue;
+            }
+            tunables.put(governorPaths[i], new Tunable(policy, governor, NAME_GOVERNOR, governorPaths[i], governor,
+                    true));
+        }
+        for (int i = 0; i < clusters.size(); i++) {
+            final int policy = clusters.get(i).policy;
+            final String governor = governors.get(governorPaths[i]);
+            for (final String path : tunablePaths.get(i)) {
+                final String value = contents.get(path);
+                if (value != null && !tunables.containsKey(path)) {
+                    final String name = path.substring(path.lastIndexOf('/') + 1);
+                    tunables.put(path, new Tunable(policy, governor, name, path, value,
+                            HwIoUtils.hasWritePermission(path)));
+                }
+            }
+        }
+        if (Constants.DEBUG) {
+            Log.v(TAG, String.format("read %s tunables of %s policies", tunables.size(), clusters.size()));
+        }
+        return new CpuGovernorTunables(tunables);
+    }
+
+    /**
+     * @return The paths of the tunables of the given governor, within the policy or the global directory
+     */
+    @NonNull private static List<String> discoverTunables(@NonNull CpuCluster cluster, @NonNull String governor) {
+        String directory = cluster.getPath() + governor + "/";
+        List<String> names = HwIoUtils.listFiles(HwIoUtils.getFile(directory), true);
+        if (names.isEmpty()) {
+            directory = PATH_CPUFREQ + governor + "/";
+            names = HwIoUtils.listFiles(HwIoUtils.getFile(directory), true);
+        }
+        Collections.sort(names);
+
+        final ArrayList<String> paths = new ArrayList<>(names.size());
+        for (final String name : names) {
+            paths.add(directory + name);
+        }
+        return paths;
+    }
+
+    /**
+     * @return The governors and tunables, governors first, followed by the tunables ordered by policy and name
+     */
+    @NonNull public List<Tunable> getTunables() {
+        return Collections.unmodifiableList(new ArrayList<>(tunables.values()));
+    }
+
+    /**
+     * @return The tunables of the given policy, without its governor
+     */
+    @NonNull public List<Tunable> getTunables(int policy) {
+        final ArrayList<Tunable> result = new ArrayList<>();
+        for (final Tunable tunable : tunables.values()) {
+            if (tunable.policy == policy && !tunable.isGovernor()) {
+                result.add(tunable);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The governor of the given policy or null if it could not be read
+     */
+    @Nullable public String getGovernor(int policy) {
+        for (final Tunable tunable : tunables.values()) {
+            if (tunable.policy == policy && tunable.isGovernor()) {
+                return tunable.value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The value of the tunable with the given name of the given policy or null if it does not exist
+     */
+    @Nullable public String getValue(int policy, @NonNull String name) {
+        for (final Tunable tunable : tunables.values()) {
+            if (tunable.policy == policy && name.equals(tunable.name)) {
+                return tunable.value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param newer The snapshot to compare with
+     * @return The values, which differ between this and the newer snapshot, including tunables which
+     * only exist within one of them
+     */
+    @NonNull public List<Change> diff(@NonNull CpuGovernorTunables newer) {
+        final ArrayList<Change> changes = new ArrayList<>();
+        final HashSet<String> seen = new HashSet<>();
+        for (final Tunable tunable : tunables.values()) {
+            seen.add(tunable.path);
+            final Tunable other = newer.tunables.get(tunable.path);
+            final String newValue = ((other != null) ? other.value : null);
+            if (!TextUtils.equals(tunable.value, newValue)) {
+                changes.add(new Change(tunable.policy, tunable.name, tunable.path, tunable.value, newValue));
+            }
+        }
+        for (final Tunable tunable : newer.tunables.values()) {
+            if (!seen.contains(tunable.path)) {
+                changes.add(new Change(tunable.policy, tunable.name, tunable.path, null, tunable.value));
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Writes the values of this snapshot, which differ from the current ones, with one root command.
+     * Governors get written before their tunables, as switching the governor resets its tunables.
+     * Tunables, which can not be written, get skipped.
+     *
+     * @param listener An optional listener, which gets called with the result of every write
+     * @return The amount of queued writes
+     */
+    @WorkerThread public int restore(@Nullable RootWriteQueue.WriteListener listener) {
+        final ArrayList<CpuCluster> clusters = new ArrayList<>();
+        for (final CpuCluster cluster : CpuTopology.getClusters()) {
+            if (getGovernor(cluster.policy) != null) {
+                clusters.add(cluster);
+            }
+        }
+        final List<Change> changes = diff(read(clusters));
+
+        final RootWriteQueue queue = RootWriteQueue.get();
+        int count = 0;
+        // the changes are ordered like this snapshot, governors first
+        for (final Change change : changes) {
+            final Tunable tunable = tunables.get(change.path);
+            if (tunable == null || change.oldValue == null || !tunable.writable) {
+                continue;
+            }
+            queue.enqueue(change.path, change.oldValue, listener);
+            count++;
+        }
+        if (count != 0) {
+            queue.flush();
+        }
+        if (Constants.DEBUG) {
+            Log.v(TAG, String.format("restoring %s of %s changes", count, changes.size()));
+        }
+        return count;
+    }
+
+    public int size() {
+        return tunables.size();
+    }
+
+    @NonNull @Override public String toString() {
+        return tunables.values().toString();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.cpu;
+
+import android.support.annotation.NonNull;
+
+import at.amartinz.hardware.Constants;
+
+/**
+ * The residency of the cpuidle states of the cpus over one sampling interval.
+ * <p>
+ * Values of cpus, which could not be read during the interval, eg. because they were offline,
+ * are {@link Constants#INVALID}. Instances get reused by their sampler, copy the values if they
+ * need to be kept. The states of a cpu, which was offline when its sampler got created, show up
+ * once the cpu came online.
+ */
+public class CpuIdleResidency {
+    public final int[] cpuIds;
+    // per cpu, the names of its idle states, eg. WFI, retention or power collapse
+    public final String[][] stateNames;
+
+    // per cpu and state, in percent of the interval
+    public final float[][] residency;
+    // per cpu and state, entries into the state per second
+    public final float[][] entriesPerSecond;
+    // per cpu, the sum of the residency of all states
+    public final float[] idle;
+
+    // elapsed realtime of the sample, in milliseconds
+    public long timestamp;
+    // length of the interval, in milliseconds
+    public long interval;
+
+    public CpuIdleResidency(@NonNull int[] cpuIds, @NonNull String[][] stateNames) {
+        this.cpuIds = cpuIds;
+        this.stateNames = stateNames.clone();
+        residency = new float[cpuIds.length][];
+        entriesPerSecond = new float[cpuIds.length][];
+        for (int i = 0; i < cpuIds.length; i++) {
+            setStates(i, stateNames[i]);
+        }
+        idle = new float[cpuIds.length];
+    }
+
+    /**
+     * Replaces the states of the cpu at the given index, eg. after they got discovered later on.
+     */
+    void setStates(int index, @NonNull String[] names) {
+        stateNames[index] = names;
+        residency[index] = new float[names.length];
+        entriesPerSecond[index] = new float[names.length];
+    }
+
+    /**
+     * @return The index of the given cpu within the arrays or -1 if it is not contained
+     */
+    public int indexOfCpu(int cpu) {
+        for (int i = 0; i < cpuIds.length; i++) {
+            if (cpuIds[i] == cpu) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The index of the state with the given name of the cpu at the given index or -1 if it has none
+     */
+    public int indexOfState(int index, @NonNull String name) {
+        final String[] names = stateNames[index];
+        for (int i = 0; i < names.length; i++) {
+            if (name.equals(names[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < cpuIds.length; i++) {
+            if (i > 0) {
+                sb.append(" | ");
+            }
+            sb.append(String.format("cpu%s: %.1f%%", cpuIds[i], idle[i]));
+            for (int s = 0; s < stateNames[i].length; s++) {
+                sb.append(String.format(" %s %.1f%% (%.1f/s)", stateNames[i][s], residency[i][s],
+                        entriesPerSecond[i][s]));
+            }
+        }
+        return sb.toString();
+    }
+}
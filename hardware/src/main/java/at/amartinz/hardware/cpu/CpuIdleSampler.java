@@ -0,0 +1,296 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.cpu;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import at.amartinz.hardware.Constants;
+import at.amartinz.hardware.utils.HwIoUtils;
+import at.amartinz.hardware.utils.HwUtils;
+import at.amartinz.hardware.utils.SysfsHandle;
+
+/**
+ * Samples the residency of the cpuidle states from /sys/devices/system/cpu/cpuN/cpuidle/stateK.
+ * <p>
+ * The states of every cpu get discovered once, their names with one batched read. Cpus, which are
+ * offline at that time, do not expose their states and get discovered again once they are online.
+ * Afterwards only the time and usage counters get reread through pooled handles, parsed into
+ * primitive arrays and compared against the previous sample, so sampling does not allocate.
+ * Not thread safe, every sampler should only be used by one thread.
+ */
+public class CpuIdleSampler {
+    private static final String TAG = CpuIdleSampler.class.getSimpleName();
+
+    private static final String STATE_PREFIX = "state";
+
+    private final int[] cpuIds;
+    // per cpu, replaced if the cpu got discovered again
+    private final String[][] stateNames;
+    // per cpu, true once its states got discovered while it was online
+    private final boolean[] discovered;
+    private int undiscoveredCount;
+
+    // per cpu and state
+    private final SysfsHandle[][] timeHandles;
+    private final SysfsHandle[][] usageHandles;
+
+    // time in microseconds and usage per cpu and state, swapped after every sample
+    private long[][] previousTime;
+    private long[][] currentTime;
+    private long[][] previousUsage;
+    private long[][] currentUsage;
+    private boolean[][] previousSeen;
+    private boolean[][] currentSeen;
+    private boolean hasPrevious;
+    private long previousNanos;
+
+    @WorkerThread public CpuIdleSampler() {
+        this(CpuReader.readPresentCpuIds());
+    }
+
+    @WorkerThread public CpuIdleSampler(@NonNull int[] cpuIds) {
+        this.cpuIds = cpuIds;
+        final int count = cpuIds.length;
+        stateNames = new String[count][];
+        discovered = new boolean[count];
+        timeHandles = new SysfsHandle[count][];
+        usageHandles = new SysfsHandle[count][];
+        previousTime = new long[count][];
+        currentTime = new long[count][];
+        previousUsage = new long[count][];
+        currentUsage = new long[count][];
+        previousSeen = new boolean[count][];
+        currentSeen = new boolean[count][];
+
+        final BitSet onlineCpus = CpuReader.readOnlineCpus();
+        final boolean[] all = new boolean[count];
+        Arrays.fill(all, true);
+        discover(all, onlineCpus);
+    }
+
+    /**
+     * Discovers the states of the given cpus and reads their names with one batched read.
+     */
+    private void discover(@NonNull boolean[] cpus, @NonNull BitSet onlineCpus) {
+        final ArrayList<List<String>> statePaths = new ArrayList<>(cpuIds.length);
+        final ArrayList<String> namePaths = new ArrayList<>();
+        for (int i = 0; i < cpuIds.length; i++) {
+            final List<String> paths = (cpus[i] ? discoverStates(cpuIds[i]) : Collections.<String>emptyList());
+            statePaths.add(paths);
+            for (final String path : paths) {
+                namePaths.add(path + "name");
+            }
+        }
+        final Map<String, String> names = HwIoUtils.readFiles(namePaths.toArray(new String[namePaths.size()]));
+
+        int stateCount = 0;
+        undiscoveredCount = 0;
+        for (int i = 0; i < cpuIds.length; i++) {
+            if (cpus[i]) {
+                final List<String> paths = statePaths.get(i);
+                setStates(i, paths, names);
+                stateCount += paths.size();
+                // without the online cpus, treat every cpu as online
+                discovered[i] = (!paths.isEmpty() || onlineCpus.isEmpty() || onlineCpus.get(cpuIds[i]));
+            }
+            if (!discovered[i]) {
+                undiscoveredCount++;
+            }
+        }
+        if (Constants.DEBUG) {
+            Log.v(TAG, String.format("discovered %s idle states, %s cpus pending", stateCount, undiscoveredCount));
+        }
+    }
+
+    private void setStates(int index, @NonNull List<String> paths, @NonNull Map<String, String> names) {
+        final int count = paths.size();
+        stateNames[index] = new String[count];
+        timeHandles[index] = new SysfsHandle[count];
+        usageHandles[index] = new SysfsHandle[count];
+        for (int s = 0; s < count; s++) {
+            final String path = paths.get(s);
+            final String name = names.get(path + "name");
+            stateNames[index][s] = ((name != null) ? name : STATE_PREFIX + s);
+            timeHandles[index][s] = SysfsHandle.obtain(path + "time");
+            usageHandles[index][s] = SysfsHandle.obtain(path + "usage");
+        }
+        previousTime[index] = new long[count];
+        currentTime[index] = new long[count];
+        previousUsage[index] = new long[count];
+        currentUsage[index] = new long[count];
+        previousSeen[index] = new boolean[count];
+        currentSeen[index] = new boolean[count];
+    }
+
+    /**
+     * Discovers the states of cpus, which were offline so far and are online now.
+     */
+    private void discoverOnlineCpus() {
+        final BitSet onlineCpus = CpuReader.readOnlineCpus();
+        final boolean[] cpus = new boolean[cpuIds.length];
+        boolean any = false;
+        for (int i = 0; i < cpuIds.length; i++) {
+            cpus[i] = (!discovered[i] && (onlineCpus.isEmpty() || onlineCpus.get(cpuIds[i])));
+            any |= cpus[i];
+        }
+        if (any) {
+            discover(cpus, onlineCpus);
+        }
+    }
+
+    /**
+     * @return The state directories of the given cpu, ordered by their index
+     */
+    @NonNull private static List<String> discoverStates(int cpu) {
+        final String base = CpuReader.getPathCoreBase(cpu) + "cpuidle/";
+        final ArrayList<Integer> states = new ArrayList<>();
+        for (final String name : HwIoUtils.listFiles(base)) {
+            if (name.startsWith(STATE_PREFIX)) {
+                final int state = HwUtils.tryParseInt(name.substring(STATE_PREFIX.length()));
+                if (state >= 0) {
+                    states.add(state);
+                }
+            }
+        }
+        Collections.sort(states);
+
+        final ArrayList<String> paths = new ArrayList<>(states.size());
+        for (final int state : states) {
+            paths.add(base + STATE_PREFIX + state + "/");
+        }
+        return paths;
+    }
+
+    @NonNull public int[] getCpuIds() {
+        return cpuIds;
+    }
+
+    /**
+     * @return Residency, which matches the cpus and states of this sampler. It gets adjusted by
+     * {@link #sample(CpuIdleResidency)} if states of a cpu get discovered later on
+     */
+    @NonNull public CpuIdleResidency createResidency() {
+        return new CpuIdleResidency(cpuIds, stateNames);
+    }
+
+    /**
+     * Reads the counters and computes the residency since the previous sample.
+     *
+     * @param out The residency to fill, see {@link #createResidency()}
+     * @return True if the residency got computed, false for the first sample
+     */
+    @WorkerThread public boolean sample(@NonNull CpuIdleResidency out) {
+        if (undiscoveredCount != 0) {
+            discoverOnlineCpus();
+        }
+
+        for (int i = 0; i < cpuIds.length; i++) {
+            final SysfsHandle[] times = timeHandles[i];
+            final SysfsHandle[] usages = usageHandles[i];
+            final long[] time = currentTime[i];
+            final long[] usage = currentUsage[i];
+            final boolean[] seen = currentSeen[i];
+            for (int s = 0; s < times.length; s++) {
+                time[s] = times[s].readLong();
+                usage[s] = usages[s].readLong();
+                seen[s] = (time[s] >= 0 && usage[s] >= 0);
+            }
+        }
+
+        final long nanos = System.nanoTime();
+        final boolean computed = hasPrevious;
+        if (computed) {
+            final long intervalUs = Math.max(1, (nanos - previousNanos) / 1000);
+            for (int i = 0; i < cpuIds.length; i++) {
+                computeInto(out, i, intervalUs);
+            }
+            out.timestamp = SystemClock.elapsedRealtime();
+            out.interval = intervalUs / 1000;
+        }
+
+        // swap, the current counters become the previous ones
+        long[][] counters = previousTime;
+        previousTime = currentTime;
+        currentTime = counters;
+        counters = previousUsage;
+        previousUsage = currentUsage;
+        currentUsage = counters;
+        final boolean[][] seen = previousSeen;
+        previousSeen = currentSeen;
+        currentSeen = seen;
+        previousNanos = nanos;
+        hasPrevious = true;
+        return computed;
+    }
+
+    /**
+     * Forgets the previous sample.
+     */
+    public void reset() {
+        hasPrevious = false;
+    }
+
+    private void computeInto(@NonNull CpuIdleResidency out, int index, long intervalUs) {
+        if (out.stateNames[index] != stateNames[index]) {
+            // the states of the cpu got discovered after the residency got created
+            out.setStates(index, stateNames[index]);
+        }
+        final float[] residency = out.residency[index];
+        final float[] entries = out.entriesPerSecond[index];
+        final long[] currentTime = this.currentTime[index];
+        final long[] previousTime = this.previousTime[index];
+        final long[] currentUsage = this.currentUsage[index];
+        final long[] previousUsage = this.previousUsage[index];
+        final boolean[] currentSeen = this.currentSeen[index];
+        final boolean[] previousSeen = this.previousSeen[index];
+        float idle = 0f;
+        boolean valid = (residency.length > 0);
+        for (int s = 0; s < residency.length; s++) {
+            final long time = currentTime[s] - previousTime[s];
+            final long usage = currentUsage[s] - previousUsage[s];
+            if (!previousSeen[s] || !currentSeen[s] || time < 0 || usage < 0) {
+                // not readable for at least a part of the interval or the counters got reset
+                residency[s] = Constants.INVALID;
+                entries[s] = Constants.INVALID;
+                valid = false;
+                continue;
+            }
+            residency[s] = Math.min(100f, (time * 100f) / intervalUs);
+            entries[s] = (usage * 1000000f) / intervalUs;
+            idle += residency[s];
+        }
+        out.idle[index] = (valid ? Math.min(100f, idle) : Constants.INVALID);
+    }
+}
@@ -28,10 +28,12 @@ import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.util.Log;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
 import at.amartinz.hardware.Constants;
+import at.amartinz.hardware.utils.FrequencyTable;
 import at.amartinz.hardware.utils.HwUtils;
 
 public class CpuInformation {
@@ -42,12 +44,19 @@ public class CpuInformation {
 
     public int coreCount = Constants.NOT_INITIALIZED;
 
-    public List<Integer> freqAvail;
+    // the values below are SoC wide, the clusters contain the values per cpufreq policy
+    public List<CpuCluster> clusters = Collections.emptyList();
+
+    // union of all clusters
+    public FrequencyTable freqAvail;
+    // highest current and maximum, lowest minimum of all clusters, which might belong to different ones
     public int freqCur = Constants.NOT_INITIALIZED;
     public int freqMax = Constants.NOT_INITIALIZED;
     public int freqMin = Constants.NOT_INITIALIZED;
 
+    // union of all clusters
     public List<String> govAvail;
+    // the governor of the first cluster with a readable one, not necessarily the one of freqCur
     public String govCur = Constants.NOT_INITIALIZED_STR;
 
     public int temperature = Constants.NOT_INITIALIZED;
@@ -73,6 +82,30 @@ public class CpuInformation {
         }
     }
 
+    /**
+     * Marks all values, which are still being initialized, as invalid.
+     */
+    public void resetInitializing() {
+        if (coreCount == Constants.INITIALIZATION_STARTED) {
+            coreCount = Constants.INVALID;
+        }
+        if (freqCur == Constants.INITIALIZATION_STARTED) {
+            freqCur = Constants.INVALID;
+        }
+        if (freqMax == Constants.INITIALIZATION_STARTED) {
+            freqMax = Constants.INVALID;
+        }
+        if (freqMin == Constants.INITIALIZATION_STARTED) {
+            freqMin = Constants.INVALID;
+        }
+        if (Constants.INITIALIZATION_STARTED_STR.equals(govCur)) {
+            govCur = Constants.INVALID_STR;
+        }
+        if (temperature == Constants.INITIALIZATION_STARTED) {
+            temperature = Constants.INVALID;
+        }
+    }
+
     public boolean isInitializing() {
         if (((coreCount == Constants.NOT_INITIALIZED) ||
              (coreCount == Constants.INITIALIZATION_STARTED))) {
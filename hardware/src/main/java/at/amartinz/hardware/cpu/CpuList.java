@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.cpu;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.util.BitSet;
+
+import at.amartinz.hardware.utils.HwIoUtils;
+
+/**
+ * Parses the cpulist format of the kernel, as used by present, possible, online and offline of
+ * /sys/devices/system/cpu, eg. "0-3,6,8-11".
+ */
+public class CpuList {
+    private CpuList() { }
+
+    /**
+     * @param cpuList The cpu list, eg. "0-3,6"
+     * @return The set of cpu ids, which is empty if there is nothing to parse; malformed entries get skipped
+     */
+    @NonNull public static BitSet parse(@Nullable String cpuList) {
+        final BitSet cpus = new BitSet();
+        if (cpuList == null) {
+            return cpus;
+        }
+
+        final int length = cpuList.length();
+        int pos = 0;
+        while (pos < length) {
+            int end = cpuList.indexOf(',', pos);
+            if (end == -1) {
+                end = length;
+            }
+            parseEntry(cpuList, pos, end, cpus);
+            pos = end + 1;
+        }
+        return cpus;
+    }
+
+    /**
+     * @return The set of cpu ids of the given node or an empty set if it could not be read
+     */
+    @WorkerThread @NonNull public static BitSet read(@Nullable String path) {
+        return parse(HwIoUtils.readSysfsFile(path));
+    }
+
+    /**
+     * @return The ascending cpu ids of the set
+     */
+    @NonNull public static int[] toArray(@NonNull BitSet cpus) {
+        final int[] ids = new int[cpus.cardinality()];
+        int index = 0;
+        for (int cpu = cpus.nextSetBit(0); cpu >= 0; cpu = cpus.nextSetBit(cpu + 1)) {
+            ids[index++] = cpu;
+        }
+        return ids;
+    }
+
+    // entries are either a single id ("6") or an inclusive range ("0-3")
+    private static void parseEntry(@NonNull String cpuList, int start, int end, @NonNull BitSet cpus) {
+        final int dash = cpuList.indexOf('-', start);
+        if (dash == -1 || dash >= end) {
+            final int cpu = parseId(cpuList, start, end);
+            if (cpu >= 0) {
+                cpus.set(cpu);
+            }
+            return;
+        }
+
+        final int first = parseId(cpuList, start, dash);
+        final int last = parseId(cpuList, dash + 1, end);
+        if (first >= 0 && last >= first) {
+            cpus.set(first, last + 1);
+        }
+    }
+
+    private static int parseId(@NonNull String cpuList, int start, int end) {
+        while (start < end && Character.isWhitespace(cpuList.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(cpuList.charAt(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return -1;
+        }
+
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            final int digit = cpuList.charAt(i) - '0';
+            // cpu ids are small, bail out on anything which is not a sane id
+            if (digit < 0 || digit > 9 || value > 100000) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -28,24 +28,33 @@ import android.os.AsyncTask;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.WorkerThread;
-import android.text.TextUtils;
 import android.util.Log;
 
-import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import at.amartinz.hardware.Constants;
+import at.amartinz.hardware.thermal.ThermalZones;
+import at.amartinz.hardware.utils.FrequencyTable;
 import at.amartinz.hardware.utils.HwIoUtils;
 import at.amartinz.hardware.utils.HwUtils;
+import at.amartinz.hardware.utils.PendingReads;
 import at.amartinz.execution.Command;
-import at.amartinz.execution.RootCheck;
 
 public class CpuReader {
     private static final String TAG = CpuReader.class.getSimpleName();
 
     private static final String PATH_BASE = "/sys/devices/system/cpu/";
     private static final String PATH_COUNT = PATH_BASE + "present";
+    private static final String PATH_POSSIBLE = PATH_BASE + "possible";
+    private static final String PATH_ONLINE = PATH_BASE + "online";
+    private static final String PATH_OFFLINE = PATH_BASE + "offline";
 
     //private static final String PATH_CORE_ONLINE = PATH_BASE + "cpu%s/online";
     private static final String PATH_CORE_BASE = PATH_BASE + "cpu%s/";
@@ -57,11 +66,6 @@ public class CpuReader {
     private static final String PATH_CORE_GOV_AVAIL = PATH_CORE_BASE + "cpufreq/scaling_available_governors";
     private static final String PATH_CORE_GOV = PATH_CORE_BASE + "cpufreq/scaling_governor";
 
-    // TODO: own file?
-    //public static final String PATH_FREQ_TIME_IN_STATE = PATH_BASE + "cpu0/cpufreq/stats/time_in_state";
-
-    private static final String PATH_TEMPERATURE = "/sys/class/thermal/thermal_zone0/temp";
-
     private CpuReader() { }
 
     public static void getCpuInformation(CpuInformationListener listener) {
@@ -74,113 +78,190 @@ public class CpuReader {
         cpuInformation.coreCount = readAvailableCores();
         cpuInformation.isOctaCore = cpuInformation.coreCount > 4;
 
+        final String pathTemperature = ThermalZones.getPathCpuTemperature();
+        final List<CpuCluster> topology = CpuTopology.getClusters();
+        if (!topology.isEmpty()) {
+            final HashMap<String, String> extraPaths = new HashMap<>(2);
+            extraPaths.put(pathTemperature, null);
+            cpuInformation.clusters = Collections.unmodifiableList(CpuTopology.readClusters(topology, extraPaths));
+            fillFromClusters(cpuInformation, cpuInformation.clusters);
+            cpuInformation.temperature = HwUtils.tryParseInt(extraPaths.get(pathTemperature));
+            return cpuInformation;
+        }
+
+        int cpuToReadFrom = 0;
         // some octa core cpus are buggy and need special treatment
         if (cpuInformation.isOctaCore) {
             if (Constants.DEBUG) {
                 Log.i(TAG, "using special octa core treatment");
             }
-            int cpuToReadFrom = 0;
             for (; cpuToReadFrom < 4; cpuToReadFrom++) {
-                final File cpuFreqDir = new File(getPathCoreBase(cpuToReadFrom), "cpufreq");
-                if (cpuFreqDir.exists()) {
+                if (HwIoUtils.fileExists(getPathCoreBase(cpuToReadFrom) + "cpufreq")) {
                     break;
                 }
             }
             if (Constants.DEBUG) {
                 Log.v(TAG, String.format("Using cpu%s to read from", cpuToReadFrom));
             }
-
-            cpuInformation.freqAvail = readFreqAvail(cpuToReadFrom);
-            cpuInformation.freqCur = readFreqCur(cpuToReadFrom);
-            cpuInformation.freqMax = readFreqMax(cpuToReadFrom);
-            cpuInformation.freqMin = readFreqMin(cpuToReadFrom);
-
-            cpuInformation.govAvail = readGovAvail(cpuToReadFrom);
-            cpuInformation.govCur = readGovernor(cpuToReadFrom);
-        } else {
-            cpuInformation.freqAvail = readFreqAvail(0);
-            cpuInformation.freqCur = readFreqCur(0);
-            cpuInformation.freqMax = readFreqMax(0);
-            cpuInformation.freqMin = readFreqMin(0);
-
-            cpuInformation.govAvail = readGovAvail(0);
-            cpuInformation.govCur = readGovernor(0);
         }
 
-        cpuInformation.temperature = readTemperature();
+        final String pathFreqAvail = getPathCoreFreqAvail(cpuToReadFrom);
+        final String pathFreqCur = getPathCoreFreqCur(cpuToReadFrom);
+        final String pathFreqMax = getPathCoreFreqMax(cpuToReadFrom);
+        final String pathFreqMin = getPathCoreFreqMin(cpuToReadFrom);
+        final String pathGovAvail = getPathCoreGovAvail(cpuToReadFrom);
+        final String pathGov = getPathCoreGov(cpuToReadFrom);
+
+        final Map<String, String> contents = HwIoUtils.readFiles(pathFreqAvail, pathFreqCur, pathFreqMax,
+                pathFreqMin, pathGovAvail, pathGov, pathTemperature);
+
+        cpuInformation.freqAvail = readFreqAvail(contents.get(pathFreqAvail));
+        cpuInformation.freqCur = HwUtils.tryParseInt(contents.get(pathFreqCur));
+        cpuInformation.freqMax = HwUtils.tryParseInt(contents.get(pathFreqMax));
+        cpuInformation.freqMin = HwUtils.tryParseInt(contents.get(pathFreqMin));
+
+        cpuInformation.govAvail = readGovAvail(contents.get(pathGovAvail));
+        cpuInformation.govCur = readGovernor(contents.get(pathGov));
+
+        cpuInformation.temperature = HwUtils.tryParseInt(contents.get(pathTemperature));
 
         return cpuInformation;
     }
 
-    private static int readTemperature() {
-        return HwIoUtils.readSysfsIntValue(PATH_TEMPERATURE);
+    /**
+     * Fills the SoC wide values with the union of the available values and the extremes of the
+     * current values of all clusters.
+     * <p>
+     * A governor can not be combined like that, so govCur is the one of the first readable cluster,
+     * usually the little one, while freqCur usually comes from a big cluster. Use the clusters for
+     * values, which have to belong together.
+     */
+    private static void fillFromClusters(@NonNull CpuInformation cpuInformation, @NonNull List<CpuCluster> clusters) {
+        int freqAvailCount = 0;
+        for (final CpuCluster cluster : clusters) {
+            freqAvailCount += cluster.freqAvail.size();
+        }
+        final int[] freqAvail = new int[freqAvailCount];
+        final HashSet<String> govAvail = new HashSet<>();
+        int freqCur = Constants.INVALID;
+        int freqMax = Constants.INVALID;
+        int freqMin = Constants.INVALID;
+        String govCur = Constants.INVALID_STR;
+
+        int pos = 0;
+        for (final CpuCluster cluster : clusters) {
+            for (int i = 0; i < cluster.freqAvail.size(); i++) {
+                freqAvail[pos++] = cluster.freqAvail.getFrequency(i);
+            }
+            govAvail.addAll(cluster.govAvail);
+
+            if (cluster.freqCur > freqCur) {
+                freqCur = cluster.freqCur;
+            }
+            if (cluster.freqMax > freqMax) {
+                freqMax = cluster.freqMax;
+            }
+            if (cluster.freqMin >= 0 && (freqMin == Constants.INVALID || cluster.freqMin < freqMin)) {
+                freqMin = cluster.freqMin;
+            }
+            // report the governor of the first cluster, which has a readable one
+            if (Constants.INVALID_STR.equals(govCur)) {
+                govCur = cluster.govCur;
+            }
+        }
+
+        cpuInformation.freqAvail = FrequencyTable.of(freqAvail);
+        cpuInformation.freqCur = freqCur;
+        cpuInformation.freqMax = freqMax;
+        cpuInformation.freqMin = freqMin;
+
+        final ArrayList<String> governors = new ArrayList<>(govAvail);
+        Collections.sort(governors);
+        cpuInformation.govAvail = governors;
+        cpuInformation.govCur = govCur;
     }
 
     public static int readAvailableCores() {
-        // example value: 0-3 -> 0, 1, 2, 3 -> we have 4 cores
-        return readAvailableCores(HwIoUtils.readFile(PATH_COUNT));
+        // example value: 0-3,6 -> 0, 1, 2, 3, 6 -> we have 5 cores
+        return readAvailableCores(HwIoUtils.readSysfsFile(PATH_COUNT));
     }
 
     private static int readAvailableCores(final String rawString) {
-        if (!TextUtils.isEmpty(rawString)) {
-            final int length = rawString.length();
-            // 0-3 -> 3
-            final String coreCountString = rawString.substring(length - 1, length);
-            final Integer coreCount = HwUtils.tryParseIntRaw(coreCountString);
-            if (coreCount != null) {
-                // 3 + 1 = 4 cores (yes, i got these math skills in school)
-                return (coreCount + 1);
-            } else if (Constants.DEBUG) {
-                Log.w(TAG, "Could not get core count!");
-            }
+        final int coreCount = CpuList.parse(rawString).cardinality();
+        if (coreCount != 0) {
+            return coreCount;
+        }
+        if (Constants.DEBUG) {
+            Log.w(TAG, "Could not get core count!");
         }
         return Constants.INVALID;
     }
 
-    @NonNull public static List<Integer> readFreqAvail(int cpuCore) {
-        final String freqString = HwIoUtils.readFile(getPathCoreFreqAvail(cpuCore));
-        if (TextUtils.isEmpty(freqString)) {
-            return Collections.emptyList();
-        }
-        return HwUtils.stringToListInteger(freqString);
+    /**
+     * @return The ids of the cpus, which are present, or an empty set if they could not be read
+     */
+    @WorkerThread @NonNull public static BitSet readPresentCpus() {
+        return CpuList.read(PATH_COUNT);
     }
 
-    @NonNull private static List<Integer> readFreqAvail(@Nullable final String freqString) {
-        if (TextUtils.isEmpty(freqString)) {
-            return Collections.emptyList();
-        }
-        return HwUtils.stringToListInteger(freqString);
+    /**
+     * @return The ids of the cpus, which may ever be present, or an empty set if they could not be read
+     */
+    @WorkerThread @NonNull public static BitSet readPossibleCpus() {
+        return CpuList.read(PATH_POSSIBLE);
+    }
+
+    /**
+     * @return The ids of the cpus, which are online, or an empty set if they could not be read
+     */
+    @WorkerThread @NonNull public static BitSet readOnlineCpus() {
+        return CpuList.read(PATH_ONLINE);
+    }
+
+    /**
+     * @return The ids of the cpus, which are offline, or an empty set if they could not be read
+     * or all cpus are online
+     */
+    @WorkerThread @NonNull public static BitSet readOfflineCpus() {
+        return CpuList.read(PATH_OFFLINE);
+    }
+
+    /**
+     * @return The ascending ids of the present cpus, falling back to cpu0 if they could not be read
+     */
+    @WorkerThread @NonNull public static int[] readPresentCpuIds() {
+        final int[] ids = CpuList.toArray(readPresentCpus());
+        return ((ids.length != 0) ? ids : new int[]{ 0 });
+    }
+
+    @NonNull public static FrequencyTable readFreqAvail(int cpuCore) {
+        return FrequencyTable.read(getPathCoreFreqAvail(cpuCore));
+    }
+
+    @NonNull private static FrequencyTable readFreqAvail(@Nullable final String freqString) {
+        return FrequencyTable.parse(freqString);
     }
 
     @NonNull public static List<String> readGovAvail(int cpuCore) {
-        final String freqString = HwIoUtils.readFile(getPathCoreGovAvail(cpuCore));
-        if (TextUtils.isEmpty(freqString)) {
+        final String freqString = HwIoUtils.readSysfsFile(getPathCoreGovAvail(cpuCore));
+        if (HwUtils.isEmpty(freqString)) {
             return Collections.emptyList();
         }
         return HwUtils.stringToList(freqString);
     }
 
     @NonNull private static List<String> readGovAvail(@Nullable final String govString) {
-        if (TextUtils.isEmpty(govString)) {
+        if (HwUtils.isEmpty(govString)) {
             return Collections.emptyList();
         }
         return HwUtils.stringToList(govString);
     }
 
-    private static int readFreqCur(int cpuCore) {
-        return HwIoUtils.readSysfsIntValue(getPathCoreFreqCur(cpuCore));
-    }
-
-    private static int readFreqMax(int cpuCore) {
-        return HwIoUtils.readSysfsIntValue(getPathCoreFreqMax(cpuCore));
-    }
-
-    private static int readFreqMin(int cpuCore) {
-        return HwIoUtils.readSysfsIntValue(getPathCoreFreqMin(cpuCore));
-    }
-
-    private static String readGovernor(int cpuCore) {
-        return HwIoUtils.readSysfsStringValue(getPathCoreGov(cpuCore));
+    @NonNull private static String readGovernor(@Nullable final String govString) {
+        if (HwUtils.isEmpty(govString)) {
+            return Constants.INVALID_STR;
+        }
+        return govString;
     }
 
     public static String getPathCoreBase(int cpuCore) {
@@ -203,6 +284,10 @@ public class CpuReader {
         return String.format(PATH_CORE_FREQ_MIN, cpuCore);
     }
 
+    public static String getPathOnlineCpus() {
+        return PATH_ONLINE;
+    }
+
     public static String getPathCoreGovAvail(int cpuCore) {
         return String.format(PATH_CORE_GOV_AVAIL, cpuCore);
     }
@@ -219,12 +304,13 @@ public class CpuReader {
         private static final String T_PATH_FREQ_MIN = getPathCoreFreqMin(0);
         private static final String T_PATH_GOV_AVAIL = getPathCoreGovAvail(0);
         private static final String T_PATH_GOV = getPathCoreGov(0);
-        private static final String T_PATH_TEMPERATURE = PATH_TEMPERATURE;
 
         private final CpuInformationListener listener;
 
         private CpuInformation cpuInformation;
-        private boolean hasFinished;
+        private String pathTemperature;
+        // contents of the cluster paths read with root, keyed by path, guarded by the pending reads
+        private HashMap<String, String> clusterContents;
 
         public ReadCpuInformationRunnable(CpuInformationListener listener) {
             super();
@@ -232,119 +318,163 @@ public class CpuReader {
         }
 
         @Override public void run() {
+            pathTemperature = ThermalZones.getPathCpuTemperature();
             cpuInformation = getCpuInformationBlocking();
-            // if the cpu information contains an invalid value AND we are not using root, finish
-            if (cpuInformation.isValid() || !RootCheck.isRooted()) {
-                hasFinished = true;
-            } else {
+            // if the cpu information contains an invalid value AND we are using root, retry with root
+            if (!cpuInformation.isValid() && HwIoUtils.isRootAvailable()) {
                 cpuInformation.resetInvalid();
+                readWithRoot();
             }
 
-            while (!hasFinished) {
-                if (cpuInformation.coreCount == Constants.NOT_INITIALIZED) {
-                    Command cmd = HwIoUtils.readFileRoot(T_PATH_COUNT, readFileListener);
-                    if (cmd == null) {
-                        break;
-                    } else {
-                        cpuInformation.coreCount = Constants.INITIALIZATION_STARTED;
+            if (cpuInformation.freqAvail != null && !cpuInformation.freqAvail.isEmpty()) {
+                if (cpuInformation.freqMin == -1) {
+                    cpuInformation.freqMin = cpuInformation.freqAvail.min();
+                }
+                if (cpuInformation.freqMax == -1) {
+                    cpuInformation.freqMax = cpuInformation.freqAvail.max();
+                }
+            }
+
+            if (listener != null) {
+                listener.onCpuInformation(cpuInformation);
+            }
+        }
+
+        private void readWithRoot() {
+            // collect everything we could not read and read it with root in one go
+            final ArrayList<String> paths = new ArrayList<>();
+            if (cpuInformation.coreCount == Constants.NOT_INITIALIZED) {
+                paths.add(T_PATH_COUNT);
+                cpuInformation.coreCount = Constants.INITIALIZATION_STARTED;
+            }
+            final List<CpuCluster> clusters = cpuInformation.clusters;
+            if (clusters != null && !clusters.isEmpty()) {
+                // read the values of every cluster, which misses some, instead of only cpu0
+                clusterContents = new HashMap<>();
+                for (final CpuCluster cluster : clusters) {
+                    if (!hasAllValues(cluster)) {
+                        clusterContents.put(cluster.getPathFreqCur(), null);
+                        clusterContents.put(cluster.getPathFreqMax(), null);
+                        clusterContents.put(cluster.getPathFreqMin(), null);
+                        clusterContents.put(cluster.getPathGov(), null);
                     }
                 }
+                paths.addAll(clusterContents.keySet());
+            } else {
                 if (cpuInformation.freqAvail == null) {
-                    Command cmd = HwIoUtils.readFileRoot(T_PATH_FREQ_AVAIL, readFileListener);
-                    if (cmd == null) {
-                        break;
-                    } else {
-                        cpuInformation.freqAvail = Collections.emptyList();
-                    }
+                    paths.add(T_PATH_FREQ_AVAIL);
+                    cpuInformation.freqAvail = FrequencyTable.EMPTY;
                 }
                 if (cpuInformation.freqCur == Constants.NOT_INITIALIZED) {
-                    Command cmd = HwIoUtils.readFileRoot(T_PATH_FREQ_CUR, readFileListener);
-                    if (cmd == null) {
-                        break;
-                    } else {
-                        cpuInformation.freqCur = Constants.INITIALIZATION_STARTED;
-                    }
+                    paths.add(T_PATH_FREQ_CUR);
+                    cpuInformation.freqCur = Constants.INITIALIZATION_STARTED;
                 }
                 if (cpuInformation.freqMax == Constants.NOT_INITIALIZED) {
-                    Command cmd = HwIoUtils.readFileRoot(T_PATH_FREQ_MAX, readFileListener);
-                    if (cmd == null) {
-                        break;
-                    } else {
-                        cpuInformation.freqMax = Constants.INITIALIZATION_STARTED;
-                    }
+                    paths.add(T_PATH_FREQ_MAX);
+                    cpuInformation.freqMax = Constants.INITIALIZATION_STARTED;
                 }
                 if (cpuInformation.freqMin == Constants.NOT_INITIALIZED) {
-                    Command cmd = HwIoUtils.readFileRoot(T_PATH_FREQ_MIN, readFileListener);
-                    if (cmd == null) {
-                        break;
-                    } else {
-                        cpuInformation.freqMin = Constants.INITIALIZATION_STARTED;
-                    }
+                    paths.add(T_PATH_FREQ_MIN);
+                    cpuInformation.freqMin = Constants.INITIALIZATION_STARTED;
                 }
                 if (cpuInformation.govAvail == null) {
-                    Command cmd = HwIoUtils.readFileRoot(T_PATH_GOV_AVAIL, readFileListener);
-                    if (cmd == null) {
-                        break;
-                    } else {
-                        cpuInformation.govAvail = Collections.emptyList();
-                    }
+                    paths.add(T_PATH_GOV_AVAIL);
+                    cpuInformation.govAvail = Collections.emptyList();
                 }
                 if (Constants.NOT_INITIALIZED_STR.equals(cpuInformation.govCur)) {
-                    Command cmd = HwIoUtils.readFileRoot(T_PATH_GOV, readFileListener);
-                    if (cmd == null) {
-                        break;
-                    } else {
-                        cpuInformation.govCur = Constants.INITIALIZATION_STARTED_STR;
-                    }
-                }
-                if (cpuInformation.temperature == Constants.NOT_INITIALIZED) {
-                    Command cmd = HwIoUtils.readFileRoot(T_PATH_TEMPERATURE, readFileListener);
-                    if (cmd == null) {
-                        break;
-                    } else {
-                        cpuInformation.temperature = Constants.INITIALIZATION_STARTED;
-                    }
+                    paths.add(T_PATH_GOV);
+                    cpuInformation.govCur = Constants.INITIALIZATION_STARTED_STR;
                 }
-
-                // if we have read all values, we are done
-                hasFinished = !cpuInformation.isInitializing();
+            }
+            if (cpuInformation.temperature == Constants.NOT_INITIALIZED) {
+                paths.add(pathTemperature);
+                cpuInformation.temperature = Constants.INITIALIZATION_STARTED;
             }
 
-            if (cpuInformation.freqAvail != null && !cpuInformation.freqAvail.isEmpty()) {
-                if (cpuInformation.freqMin == -1) {
-                    cpuInformation.freqMin = cpuInformation.freqAvail.get(0);
+            final PendingReads pendingReads = new PendingReads(paths);
+            final Command cmd = HwIoUtils.readFilesRoot(paths.toArray(new String[paths.size()]),
+                    new HwIoUtils.ReadFileListener() {
+                        @Override public void onFileRead(String path, String content) {
+                            synchronized (pendingReads) {
+                                if (pendingReads.isPending(path)) {
+                                    onRootFileRead(path, content);
+                                    pendingReads.complete(path);
+                                }
+                            }
+                        }
+                    });
+            if (cmd == null) {
+                if (!paths.isEmpty() && Constants.DEBUG) {
+                    Log.e(TAG, "Could not read files with root!");
                 }
-                if (cpuInformation.freqMax == -1) {
-                    final int maxPos = cpuInformation.freqAvail.size() - 1;
-                    cpuInformation.freqMax = cpuInformation.freqAvail.get(maxPos);
+                pendingReads.cancel();
+            } else if (!pendingReads.await(PendingReads.DEFAULT_TIMEOUT, TimeUnit.MILLISECONDS) && Constants.DEBUG) {
+                Log.w(TAG, String.format("Timed out reading with root -> %s", pendingReads.getPending()));
+            }
+
+            synchronized (pendingReads) {
+                // ignore results arriving too late and do not report values, which never arrived
+                pendingReads.cancel();
+                if (clusterContents != null) {
+                    final ArrayList<CpuCluster> merged = new ArrayList<>(clusters.size());
+                    for (final CpuCluster cluster : clusters) {
+                        merged.add(hasAllValues(cluster) ? cluster : mergeRootValues(cluster, clusterContents));
+                    }
+                    cpuInformation.clusters = Collections.unmodifiableList(merged);
+                    fillFromClusters(cpuInformation, cpuInformation.clusters);
                 }
+                cpuInformation.resetInitializing();
             }
+        }
 
-            if (listener != null) {
-                listener.onCpuInformation(cpuInformation);
+        private void onRootFileRead(String path, String content) {
+            if (clusterContents != null && clusterContents.containsKey(path)) {
+                // checked first, the paths of per core cpufreq clusters equal the ones of cpu0
+                clusterContents.put(path, content);
+            } else if (T_PATH_COUNT.equals(path)) {
+                cpuInformation.coreCount = readAvailableCores(content);
+            } else if (T_PATH_FREQ_AVAIL.equals(path)) {
+                cpuInformation.freqAvail = readFreqAvail(content);
+            } else if (T_PATH_FREQ_CUR.equals(path)) {
+                cpuInformation.freqCur = HwUtils.tryParseInt(content);
+            } else if (T_PATH_FREQ_MAX.equals(path)) {
+                cpuInformation.freqMax = HwUtils.tryParseInt(content);
+            } else if (T_PATH_FREQ_MIN.equals(path)) {
+                cpuInformation.freqMin = HwUtils.tryParseInt(content);
+            } else if (T_PATH_GOV_AVAIL.equals(path)) {
+                cpuInformation.govAvail = readGovAvail(content);
+            } else if (T_PATH_GOV.equals(path)) {
+                cpuInformation.govCur = content;
+            } else if (pathTemperature.equals(path)) {
+                cpuInformation.temperature = HwUtils.tryParseInt(content);
             }
         }
 
-        private final HwIoUtils.ReadFileListener readFileListener = new HwIoUtils.ReadFileListener() {
-            @Override public void onFileRead(String path, String content) {
-                if (T_PATH_COUNT.equals(path)) {
-                    cpuInformation.coreCount = HwUtils.tryParseInt(content);
-                } else if (T_PATH_FREQ_AVAIL.equals(path)) {
-                    cpuInformation.freqAvail = readFreqAvail(content);
-                } else if (T_PATH_FREQ_CUR.equals(path)) {
-                    cpuInformation.freqCur = HwUtils.tryParseInt(content);
-                } else if (T_PATH_FREQ_MAX.equals(path)) {
-                    cpuInformation.freqMax = HwUtils.tryParseInt(content);
-                } else if (T_PATH_FREQ_MIN.equals(path)) {
-                    cpuInformation.freqMin = HwUtils.tryParseInt(content);
-                } else if (T_PATH_GOV_AVAIL.equals(path)) {
-                    cpuInformation.govAvail = readGovAvail(content);
-                } else if (T_PATH_GOV.equals(path)) {
-                    cpuInformation.govCur = content;
-                } else if (T_PATH_TEMPERATURE.equals(path)) {
-                    cpuInformation.temperature = HwUtils.tryParseInt(content);
-                }
+        private static boolean hasAllValues(@NonNull CpuCluster cluster) {
+            return (cluster.freqCur >= 0 && cluster.freqMax >= 0 && cluster.freqMin >= 0
+                    && !Constants.INVALID_STR.equals(cluster.govCur));
+        }
+
+        /**
+         * @return A new cluster with the values read with root, keeping the ones read without root
+         * where the root read failed
+         */
+        @NonNull private static CpuCluster mergeRootValues(@NonNull CpuCluster cluster,
+                @NonNull Map<String, String> contents) {
+            final CpuCluster merged = cluster.fromContents(contents);
+            if (merged.freqCur < 0) {
+                merged.freqCur = cluster.freqCur;
+            }
+            if (merged.freqMax < 0) {
+                merged.freqMax = cluster.freqMax;
+            }
+            if (merged.freqMin < 0) {
+                merged.freqMin = cluster.freqMin;
             }
-        };
+            if (Constants.INVALID_STR.equals(merged.govCur)) {
+                merged.govCur = cluster.govCur;
+            }
+            return merged;
+        }
     }
 }
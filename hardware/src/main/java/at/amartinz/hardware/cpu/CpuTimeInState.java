@@ -0,0 +1,147 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.cpu;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+import at.amartinz.hardware.Constants;
+
+/**
+ * The time spent at every frequency per cpufreq policy, either since boot or, if created via
+ * {@link #since(CpuTimeInState)}, within a window between two snapshots.
+ * <p>
+ * Arrays are indexed by cluster, in the order of the clusters the snapshot got sampled for, and
+ * then by frequency step. Times are in milliseconds.
+ */
+public class CpuTimeInState {
+    public final int[] policies;
+    public final int[][] frequencies;
+    public final long[][] times;
+
+    // elapsed realtime of the snapshot or the length of the window, in milliseconds
+    public final long timestamp;
+
+    CpuTimeInState(@NonNull int[] policies, @NonNull int[][] frequencies, @NonNull long[][] times, long timestamp) {
+        this.policies = policies;
+        this.frequencies = frequencies;
+        this.times = times;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @param older An older snapshot of the same clusters
+     * @return The window between the given snapshot and this one, its timestamp is the length of the window
+     */
+    @NonNull public CpuTimeInState since(@NonNull CpuTimeInState older) {
+        final long[][] deltas = new long[times.length][];
+        for (int c = 0; c < times.length; c++) {
+            final int olderIndex = older.indexOfPolicy(policies[c]);
+            deltas[c] = new long[times[c].length];
+            for (int i = 0; i < times[c].length; i++) {
+                final long olderTime = ((olderIndex != -1) ? older.timeAt(olderIndex, frequencies[c][i]) : 0);
+                final long delta = times[c][i] - olderTime;
+                // stats got reset in between, eg. because the policy got recreated
+                deltas[c][i] = ((delta >= 0) ? delta : times[c][i]);
+            }
+        }
+        return new CpuTimeInState(policies, frequencies, deltas, timestamp - older.timestamp);
+    }
+
+    /**
+     * @return The index of the cluster with the given policy or -1 if it is not contained
+     */
+    public int indexOfPolicy(int policy) {
+        for (int i = 0; i < policies.length; i++) {
+            if (policies[i] == policy) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The sum of the times of all frequencies of the cluster
+     */
+    public long getTotalTime(int cluster) {
+        long total = 0;
+        for (final long time : times[cluster]) {
+            total += time;
+        }
+        return total;
+    }
+
+    /**
+     * @return The share of the time spent at every frequency step in percent, all 0 if no time passed
+     */
+    @NonNull public float[] getResidency(int cluster) {
+        final long total = getTotalTime(cluster);
+        final float[] residency = new float[times[cluster].length];
+        if (total > 0) {
+            for (int i = 0; i < residency.length; i++) {
+                residency[i] = (times[cluster][i] * 100f) / total;
+            }
+        }
+        return residency;
+    }
+
+    /**
+     * @return The time weighted average frequency or {@link Constants#INVALID} if no time passed
+     */
+    public int getAverageFrequency(int cluster) {
+        final long total = getTotalTime(cluster);
+        if (total <= 0) {
+            return Constants.INVALID;
+        }
+        double weighted = 0;
+        for (int i = 0; i < times[cluster].length; i++) {
+            weighted += (double) frequencies[cluster][i] * times[cluster][i];
+        }
+        return (int) (weighted / total);
+    }
+
+    private long timeAt(int cluster, int frequency) {
+        final int[] clusterFrequencies = frequencies[cluster];
+        for (int i = 0; i < clusterFrequencies.length; i++) {
+            if (clusterFrequencies[i] == frequency) {
+                return times[cluster][i];
+            }
+        }
+        return 0;
+    }
+
+    @Override public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < policies.length; c++) {
+            if (c != 0) {
+                sb.append(" | ");
+            }
+            sb.append(String.format("policy%s: avg %s %s", policies[c], getAverageFrequency(c),
+                    Arrays.toString(getResidency(c))));
+        }
+        return sb.toString();
+    }
+}
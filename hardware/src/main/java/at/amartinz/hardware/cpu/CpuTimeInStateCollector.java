@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.cpu;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import java.util.Arrays;
+import java.util.List;
+
+import at.amartinz.hardware.utils.HwIoUtils;
+
+/**
+ * Collects snapshots of cpufreq/stats/time_in_state of every cpufreq policy.
+ * <p>
+ * Every policy gets read with one read of its pooled handle into a reused buffer. Keep snapshots
+ * and use {@link CpuTimeInState#since(CpuTimeInState)} to get the residency within any window.
+ * <pre>
+ * final CpuTimeInStateCollector collector = new CpuTimeInStateCollector();
+ * final CpuTimeInState start = collector.sample();
+ * // run the workload
+ * final CpuTimeInState window = collector.sample().since(start);
+ * final int averageFrequency = window.getAverageFrequency(0);
+ * </pre>
+ */
+public class CpuTimeInStateCollector {
+    // time_in_state reports in clock ticks of 10 milliseconds
+    private static final long TICK_MS = 10;
+
+    private final List<CpuCluster> clusters;
+    private final int[] policies;
+
+    // pairs of frequency and time, grows if there are more steps
+    private long[] buffer = new long[64];
+
+    @WorkerThread public CpuTimeInStateCollector() {
+        this(CpuTopology.getClusters());
+    }
+
+    public CpuTimeInStateCollector(@NonNull List<CpuCluster> clusters) {
+        this.clusters = clusters;
+        this.policies = new int[clusters.size()];
+        for (int i = 0; i < policies.length; i++) {
+            policies[i] = clusters.get(i).policy;
+        }
+    }
+
+    /**
+     * @return The time in state since boot, clusters without readable stats have no frequencies
+     */
+    @WorkerThread @NonNull public synchronized CpuTimeInState sample() {
+        final int[][] frequencies = new int[clusters.size()][];
+        final long[][] times = new long[clusters.size()][];
+        for (int c = 0; c < clusters.size(); c++) {
+            final String path = clusters.get(c).getPathTimeInState();
+            int count = HwIoUtils.readLongArray(path, buffer);
+            if (count > buffer.length) {
+                buffer = new long[count];
+                count = HwIoUtils.readLongArray(path, buffer);
+            }
+
+            final int steps = ((count > 0) ? Math.min(count, buffer.length) / 2 : 0);
+            frequencies[c] = new int[steps];
+            times[c] = new long[steps];
+            for (int i = 0; i < steps; i++) {
+                frequencies[c][i] = (int) buffer[i * 2];
+                times[c][i] = buffer[i * 2 + 1] * TICK_MS;
+            }
+        }
+        return new CpuTimeInState(Arrays.copyOf(policies, policies.length), frequencies, times,
+                SystemClock.elapsedRealtime());
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.cpu;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import at.amartinz.hardware.Constants;
+import at.amartinz.hardware.utils.FrequencyTable;
+import at.amartinz.hardware.utils.HwIoUtils;
+import at.amartinz.hardware.utils.HwUtils;
+
+/**
+ * Discovers the cpufreq policies of the device and the cores they control.
+ * <p>
+ * Policies get discovered once, by walking /sys/devices/system/cpu/cpufreq/policyN, or the cpufreq
+ * directories of the cores on older kernels, and grouping the cores by their related_cpus.
+ * <p>
+ * Older kernels drop the cpufreq directories of offline cores. If the discovered clusters do not
+ * cover all present cpus, they get discovered again as soon as the online cpus change.
+ */
+public class CpuTopology {
+    private static final String TAG = CpuTopology.class.getSimpleName();
+
+    private static final String PATH_CPUFREQ = "/sys/devices/system/cpu/cpufreq/";
+    private static final String POLICY_PREFIX = "policy";
+
+    private static List<CpuCluster> sClusters;
+    // the online cpus at discovery, if the clusters do not contain all present cpus, else null
+    private static BitSet sPartialOnline;
+
+    private CpuTopology() { }
+
+    /**
+     * @return The clusters, ordered by policy, without current values or an empty list if the device
+     * does not expose cpufreq
+     */
+    @WorkerThread @NonNull public static synchronized List<CpuCluster> getClusters() {
+        if (sClusters != null && sPartialOnline != null && !sPartialOnline.equals(CpuReader.readOnlineCpus())) {
+            // cores of missing clusters might have come online
+            sClusters = null;
+        }
+        if (sClusters == null) {
+            final List<CpuCluster> clusters = discover();
+            if (clusters.isEmpty()) {
+                // not cached, the nodes might not be readable yet, eg. before root got granted
+                return clusters;
+            }
+            sClusters = Collections.unmodifiableList(clusters);
+            sPartialOnline = (containsAllPresentCpus(clusters) ? null : CpuReader.readOnlineCpus());
+            if (Constants.DEBUG) {
+                Log.v(TAG, String.format("discovered clusters -> %s, complete: %s", sClusters, sPartialOnline == null));
+            }
+        }
+        return sClusters;
+    }
+
+    /**
+     * Reads the current values of all clusters with one batched read.
+     *
+     * @return New clusters, containing the current values
+     */
+    @WorkerThread @NonNull public static List<CpuCluster> readClusters() {
+        return readClusters(getClusters(), null);
+    }
+
+    /**
+     * @param extraPaths Additional paths to read within the same batch, their contents get put into
+     *                   the given map
+     */
+    @WorkerThread @NonNull static List<CpuCluster> readClusters(@NonNull List<CpuCluster> clusters,
+            @Nullable Map<String, String> extraPaths) {
+        final ArrayList<String> paths = new ArrayList<>(clusters.size() * 4 + 1);
+        for (final CpuCluster cluster : clusters) {
+            paths.add(cluster.getPathFreqCur());
+            paths.add(cluster.getPathFreqMax());
+            paths.add(cluster.getPathFreqMin());
+            paths.add(cluster.getPathGov());
+        }
+        if (extraPaths != null) {
+            paths.addAll(extraPaths.keySet());
+        }
+
+        final Map<String, String> contents = HwIoUtils.readFiles(paths.toArray(new String[paths.size()]));
+        if (extraPaths != null) {
+            for (final Map.Entry<String, String> entry : extraPaths.entrySet()) {
+                entry.setValue(contents.get(entry.getKey()));
+            }
+        }
+
+        final ArrayList<CpuCluster> result = new ArrayList<>(clusters.size());
+        for (final CpuCluster cluster : clusters) {
+            result.add(cluster.fromContents(contents));
+        }
+        return result;
+    }
+
+    /**
+     * @return The cluster containing the given cpu or null if there is none
+     */
+    @WorkerThread @Nullable public static CpuCluster getClusterOfCpu(int cpu) {
+        for (final CpuCluster cluster : getClusters()) {
+            if (cluster.containsCpu(cpu)) {
+                return cluster;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drops the discovered topology, it gets discovered again on the next access.
+     */
+    public static synchronized void invalidate() {
+        sClusters = null;
+        sPartialOnline = null;
+    }
+
+    @NonNull private static List<CpuCluster> discover() {
+        final ArrayList<CpuCluster> clusters = new ArrayList<>();
+        for (final String name : HwIoUtils.listFiles(PATH_CPUFREQ)) {
+            if (!name.startsWith(POLICY_PREFIX)) {
+                continue;
+            }
+            final int policy = HwUtils.tryParseInt(name.substring(POLICY_PREFIX.length()));
+            if (policy < 0) {
+                continue;
+            }
+            final CpuCluster cluster = createCluster(policy, PATH_CPUFREQ + name + "/");
+            if (cluster != null) {
+                clusters.add(cluster);
+            }
+        }
+
+        if (clusters.isEmpty()) {
+            // older kernels only expose cpufreq per core, group the cores by their related cpus
+            for (final int cpu : CpuReader.readPresentCpuIds()) {
+                if (containsCpu(clusters, cpu)) {
+                    continue;
+                }
+                final String path = CpuReader.getPathCoreBase(cpu) + "cpufreq/";
+                if (!HwIoUtils.fileExists(path)) {
+                    continue;
+                }
+                final CpuCluster cluster = createCluster(cpu, path);
+                if (cluster != null) {
+                    clusters.add(cluster);
+                }
+            }
+        }
+
+        Collections.sort(clusters, new Comparator<CpuCluster>() {
+            @Override public int compare(CpuCluster lhs, CpuCluster rhs) {
+                return (lhs.policy < rhs.policy) ? -1 : ((lhs.policy == rhs.policy) ? 0 : 1);
+            }
+        });
+        return clusters;
+    }
+
+    @Nullable private static CpuCluster createCluster(int policy, @NonNull String path) {
+        int[] cpus = new int[8];
+        int count = HwIoUtils.readIntArray(path + "related_cpus", cpus);
+        if (count > cpus.length) {
+            cpus = new int[count];
+            count = HwIoUtils.readIntArray(path + "related_cpus", cpus);
+        }
+        if (count <= 0) {
+            if (Constants.DEBUG) {
+                Log.w(TAG, String.format("Could not read related cpus -> %s", path));
+            }
+            return null;
+        }
+        cpus = Arrays.copyOf(cpus, count);
+        Arrays.sort(cpus);
+
+        final FrequencyTable freqAvail = FrequencyTable.read(path + "scaling_available_frequencies");
+        final List<String> govAvail = HwUtils.stringToList(HwIoUtils.readSysfsFile(path + "scaling_available_governors"));
+        return new CpuCluster(policy, cpus, path, freqAvail, Collections.unmodifiableList(govAvail));
+    }
+
+    private static boolean containsAllPresentCpus(@NonNull List<CpuCluster> clusters) {
+        for (final int cpu : CpuReader.readPresentCpuIds()) {
+            if (!containsCpu(clusters, cpu)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsCpu(@NonNull List<CpuCluster> clusters, int cpu) {
+        for (final CpuCluster cluster : clusters) {
+            if (cluster.containsCpu(cpu)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.cpu;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.util.Arrays;
+import java.util.List;
+
+import at.amartinz.hardware.Constants;
+import at.amartinz.hardware.utils.HwIoUtils;
+import at.amartinz.hardware.utils.SysfsHandle;
+
+/**
+ * Collects snapshots of cpufreq/stats/trans_table and total_trans of every cpufreq policy.
+ * <p>
+ * Keep snapshots and use {@link CpuTransitions#since(CpuTransitions)} to get the transitions and
+ * the transitions per second within any window, eg. to detect a governor bouncing between steps.
+ * <pre>
+ *    From  :    To
+ *          :    300000    422400
+ *   300000:         0        14
+ *   422400:         8         0
+ * </pre>
+ */
+public class CpuTransitionCollector {
+    private final List<CpuCluster> clusters;
+    private final int[] policies;
+
+    @WorkerThread public CpuTransitionCollector() {
+        this(CpuTopology.getClusters());
+    }
+
+    public CpuTransitionCollector(@NonNull List<CpuCluster> clusters) {
+        this.clusters = clusters;
+        this.policies = new int[clusters.size()];
+        for (int i = 0; i < policies.length; i++) {
+            policies[i] = clusters.get(i).policy;
+        }
+    }
+
+    /**
+     * @return The transitions since boot, clusters without readable stats have no frequencies
+     * and {@link Constants#INVALID} total transitions
+     */
+    @WorkerThread @NonNull public CpuTransitions sample() {
+        final int count = clusters.size();
+        final int[][] frequencies = new int[count][];
+        final int[][] matrices = new int[count][];
+        final long[] totals = new long[count];
+        for (int c = 0; c < count; c++) {
+            final CpuCluster cluster = clusters.get(c);
+            final TransTable table = parse(HwIoUtils.readSysfsFile(cluster.getPathTransTable()));
+            frequencies[c] = table.frequencies;
+            matrices[c] = table.matrix;
+
+            long total = HwIoUtils.readLong(cluster.getPathTotalTrans());
+            if (total == SysfsHandle.INVALID_LONG) {
+                // total_trans is missing on some kernels, sum up the matrix
+                total = ((table.matrix.length != 0) ? 0 : Constants.INVALID);
+                for (final int transitions : table.matrix) {
+                    total += transitions;
+                }
+            }
+            totals[c] = total;
+        }
+        return new CpuTransitions(Arrays.copyOf(policies, policies.length), frequencies, matrices, totals,
+                SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * Parses a trans_table, tables which got truncated or are malformed result in an empty table.
+     */
+    @NonNull static TransTable parse(@Nullable String content) {
+        if (content == null) {
+            return TransTable.EMPTY;
+        }
+
+        int[] frequencies = null;
+        int[] matrix = null;
+        int rows = 0;
+
+        final NumberScanner scanner = new NumberScanner(content);
+        int lineStart = 0;
+        final int length = content.length();
+        while (lineStart < length) {
+            int lineEnd = content.indexOf('\n', lineStart);
+            if (lineEnd == -1) {
+                lineEnd = length;
+            }
+            final int colon = content.indexOf(':', lineStart);
+            // skip the "From : To" line and anything else without separator
+            final boolean isTitle = content.startsWith("From", lineStart + countSpaces(content, lineStart, lineEnd));
+            if (colon != -1 && colon < lineEnd && !isTitle) {
+                scanner.reset(lineStart, colon);
+                final long from = scanner.next();
+                scanner.reset(colon + 1, lineEnd);
+
+                if (from == Constants.INVALID && frequencies == null) {
+                    // the header, containing the target frequencies
+                    final int steps = scanner.count();
+                    frequencies = new int[steps];
+                    for (int i = 0; i < steps; i++) {
+                        frequencies[i] = (int) scanner.next();
+                    }
+                    matrix = new int[steps * steps];
+                } else if (from != Constants.INVALID && frequencies != null) {
+                    final int row = indexOf(frequencies, (int) from);
+                    if (row == -1 || scanner.count() != frequencies.length) {
+                        return TransTable.EMPTY;
+                    }
+                    for (int i = 0; i < frequencies.length; i++) {
+                        matrix[row * frequencies.length + i] = (int) Math.min(Integer.MAX_VALUE, scanner.next());
+                    }
+                    rows++;
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        if (frequencies == null || rows != frequencies.length) {
+            return TransTable.EMPTY;
+        }
+        return new TransTable(frequencies, matrix);
+    }
+
+    private static int countSpaces(@NonNull String content, int start, int end) {
+        int count = 0;
+        while (start + count < end && content.charAt(start + count) == ' ') {
+            count++;
+        }
+        return count;
+    }
+
+    private static int indexOf(@NonNull int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static class TransTable {
+        static final TransTable EMPTY = new TransTable(new int[0], new int[0]);
+
+        final int[] frequencies;
+        final int[] matrix;
+
+        TransTable(@NonNull int[] frequencies, @NonNull int[] matrix) {
+            this.frequencies = frequencies;
+            this.matrix = matrix;
+        }
+    }
+
+    /**
+     * Scans whitespace separated, non negative numbers within a range of a string.
+     */
+    private static class NumberScanner {
+        private final String content;
+        private int pos;
+        private int end;
+
+        private NumberScanner(@NonNull String content) {
+            this.content = content;
+        }
+
+        private void reset(int start, int end) {
+            this.pos = start;
+            this.end = end;
+        }
+
+        /**
+         * @return The amount of numbers within the range, does not move the position
+         */
+        private int count() {
+            final int position = pos;
+            int count = 0;
+            while (next() != Constants.INVALID) {
+                count++;
+            }
+            pos = position;
+            return count;
+        }
+
+        private long next() {
+            while (pos < end && Character.isWhitespace(content.charAt(pos))) {
+                pos++;
+            }
+            if (pos == end) {
+                return Constants.INVALID;
+            }
+            long value = 0;
+            final int digitStart = pos;
+            while (pos < end && content.charAt(pos) >= '0' && content.charAt(pos) <= '9') {
+                value = value * 10 + (content.charAt(pos) - '0');
+                pos++;
+            }
+            if (pos == digitStart) {
+                // not a number, skip the token
+                pos = end;
+                return Constants.INVALID;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.cpu;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+import at.amartinz.hardware.Constants;
+
+/**
+ * The frequency transitions per cpufreq policy, either since boot or, if created via
+ * {@link #since(CpuTransitions)}, within a window between two snapshots.
+ * <p>
+ * Arrays are indexed by cluster, in the order of the clusters the snapshot got sampled for.
+ * The transition matrix of a cluster is stored row major, the count of transitions from
+ * frequency step {@code from} to step {@code to} is {@code matrices[cluster][from * steps + to]}.
+ */
+public class CpuTransitions {
+    public final int[] policies;
+    public final int[][] frequencies;
+    public final int[][] matrices;
+    public final long[] totalTransitions;
+
+    // elapsed realtime of the snapshot or the length of the window, in milliseconds
+    public final long timestamp;
+
+    CpuTransitions(@NonNull int[] policies, @NonNull int[][] frequencies, @NonNull int[][] matrices,
+            @NonNull long[] totalTransitions, long timestamp) {
+        this.policies = policies;
+        this.frequencies = frequencies;
+        this.matrices = matrices;
+        this.totalTransitions = totalTransitions;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @param older An older snapshot of the same clusters
+     * @return The window between the given snapshot and this one, its timestamp is the length of the window
+     */
+    @NonNull public CpuTransitions since(@NonNull CpuTransitions older) {
+        final int[][] deltas = new int[matrices.length][];
+        final long[] totals = new long[totalTransitions.length];
+        for (int c = 0; c < matrices.length; c++) {
+            final int olderIndex = older.indexOfPolicy(policies[c]);
+            final boolean comparable = (olderIndex != -1)
+                                       && Arrays.equals(frequencies[c], older.frequencies[olderIndex]);
+
+            deltas[c] = new int[matrices[c].length];
+            for (int i = 0; i < deltas[c].length; i++) {
+                final int delta = matrices[c][i] - (comparable ? older.matrices[olderIndex][i] : 0);
+                // stats got reset in between, eg. because the policy got recreated
+                deltas[c][i] = ((delta >= 0) ? delta : matrices[c][i]);
+            }
+
+            final long olderTotal = ((olderIndex != -1) ? older.totalTransitions[olderIndex] : 0);
+            if (totalTransitions[c] < 0 || olderTotal < 0) {
+                totals[c] = Constants.INVALID;
+            } else {
+                final long total = totalTransitions[c] - olderTotal;
+                totals[c] = ((total >= 0) ? total : totalTransitions[c]);
+            }
+        }
+        return new CpuTransitions(policies, frequencies, deltas, totals, timestamp - older.timestamp);
+    }
+
+    /**
+     * @return The index of the cluster with the given policy or -1 if it is not contained
+     */
+    public int indexOfPolicy(int policy) {
+        for (int i = 0; i < policies.length; i++) {
+            if (policies[i] == policy) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The count of transitions between the given frequency steps of the cluster
+     */
+    public int getTransitions(int cluster, int from, int to) {
+        return matrices[cluster][from * frequencies[cluster].length + to];
+    }
+
+    /**
+     * @return The transitions per second of the cluster, based on total_trans, or
+     * {@link Constants#INVALID} if they are not available or no time passed
+     */
+    public float getTransitionsPerSecond(int cluster) {
+        if (totalTransitions[cluster] < 0 || timestamp <= 0) {
+            return Constants.INVALID;
+        }
+        return (totalTransitions[cluster] * 1000f) / timestamp;
+    }
+
+    @Override public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < policies.length; c++) {
+            if (c != 0) {
+                sb.append(" | ");
+            }
+            sb.append(String.format("policy%s: %s transitions (%.2f/s)", policies[c], totalTransitions[c],
+                    getTransitionsPerSecond(c)));
+        }
+        return sb.toString();
+    }
+}
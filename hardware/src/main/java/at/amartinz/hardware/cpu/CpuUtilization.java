@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.cpu;
+
+import android.support.annotation.NonNull;
+
+import at.amartinz.hardware.Constants;
+
+/**
+ * The utilization of the cpus over one sampling interval, in percent of the interval.
+ * <p>
+ * Values of cpus, which were offline during the interval, are {@link Constants#INVALID}.
+ * Instances get reused by their sampler, copy the values if they need to be kept.
+ */
+public class CpuUtilization {
+    public final int[] cpuIds;
+
+    public final float[] user;
+    public final float[] system;
+    public final float[] iowait;
+    public final float[] irq;
+    public final float[] busy;
+
+    public float totalUser = Constants.INVALID;
+    public float totalSystem = Constants.INVALID;
+    public float totalIowait = Constants.INVALID;
+    public float totalIrq = Constants.INVALID;
+    public float totalBusy = Constants.INVALID;
+
+    // elapsed realtime of the sample, in milliseconds
+    public long timestamp;
+    // length of the interval, in milliseconds
+    public long interval;
+
+    public CpuUtilization(@NonNull int[] cpuIds) {
+        this.cpuIds = cpuIds;
+        user = new float[cpuIds.length];
+        system = new float[cpuIds.length];
+        iowait = new float[cpuIds.length];
+        irq = new float[cpuIds.length];
+        busy = new float[cpuIds.length];
+    }
+
+    /**
+     * @return The index of the given cpu within the arrays or -1 if it is not contained
+     */
+    public int indexOfCpu(int cpu) {
+        for (int i = 0; i < cpuIds.length; i++) {
+            if (cpuIds[i] == cpu) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format("total: %.1f%% (user %.1f%% | system %.1f%% | iowait %.1f%% | irq %.1f%%)",
+                totalBusy, totalUser, totalSystem, totalIowait, totalIrq));
+        for (int i = 0; i < cpuIds.length; i++) {
+            sb.append(String.format(" | cpu%s: %.1f%%", cpuIds[i], busy[i]));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.cpu;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import at.amartinz.hardware.Constants;
+import at.amartinz.hardware.utils.HwIoUtils;
+
+/**
+ * Samples the utilization of the cpus from the cpu lines of /proc/stat.
+ * <p>
+ * The file is kept open and reread from offset 0 into a reused buffer, reading stops after the
+ * last cpu line. Counters are parsed in place into primitive arrays and compared against the
+ * previous sample, so sampling does not allocate.
+ * Not thread safe, every sampler should only be used by one thread.
+ */
+public class CpuUtilizationSampler {
+    private static final String TAG = CpuUtilizationSampler.class.getSimpleName();
+
+    private static final String PATH_PROC_STAT = "/proc/stat";
+
+    // the fields we keep per cpu, user includes nice and irq includes softirq
+    private static final int USER = 0;
+    private static final int SYSTEM = 1;
+    private static final int IDLE = 2;
+    private static final int IOWAIT = 3;
+    private static final int IRQ = 4;
+    private static final int TOTAL = 5;
+    private static final int FIELDS = 6;
+
+    private final int[] cpuIds;
+    // maps the cpu id to its index, the total line uses the index after the last cpu
+    private final int[] indexOfCpu;
+    private final int totalIndex;
+
+    private long[] previous;
+    private long[] current;
+    private boolean[] previousSeen;
+    private boolean[] currentSeen;
+    private boolean hasPrevious;
+    private long previousTimestamp;
+
+    // the /proc/stat columns of the line being parsed
+    private final long[] columns = new long[8];
+
+    private RandomAccessFile file;
+    private byte[] buffer = new byte[4096];
+
+    public CpuUtilizationSampler(@NonNull int[] cpuIds) {
+        this.cpuIds = cpuIds;
+        int maxCpu = 0;
+        for (final int cpu : cpuIds) {
+            maxCpu = Math.max(maxCpu, cpu);
+        }
+        indexOfCpu = new int[maxCpu + 1];
+        Arrays.fill(indexOfCpu, -1);
+        for (int i = 0; i < cpuIds.length; i++) {
+            indexOfCpu[cpuIds[i]] = i;
+        }
+        totalIndex = cpuIds.length;
+
+        previous = new long[(cpuIds.length + 1) * FIELDS];
+        current = new long[previous.length];
+        previousSeen = new boolean[cpuIds.length + 1];
+        currentSeen = new boolean[cpuIds.length + 1];
+    }
+
+    @NonNull public int[] getCpuIds() {
+        return cpuIds;
+    }
+
+    /**
+     * Reads the counters and computes the utilization since the previous sample.
+     *
+     * @param out The utilization to fill, created with the cpu ids of this sampler
+     * @return True if the utilization got computed, false for the first sample or if /proc/stat
+     * could not be read
+     */
+    @WorkerThread public boolean sample(@NonNull CpuUtilization out) {
+        Arrays.fill(currentSeen, false);
+        if (!readCounters()) {
+            hasPrevious = false;
+            return false;
+        }
+
+        final long now = SystemClock.elapsedRealtime();
+        final boolean computed = hasPrevious;
+        if (computed) {
+            for (int i = 0; i < cpuIds.length; i++) {
+                computeInto(out, i);
+            }
+            computeTotalInto(out);
+            out.timestamp = now;
+            out.interval = now - previousTimestamp;
+        }
+
+        // swap, the current counters become the previous ones
+        final long[] counters = previous;
+        previous = current;
+        current = counters;
+        final boolean[] seen = previousSeen;
+        previousSeen = currentSeen;
+        currentSeen = seen;
+        previousTimestamp = now;
+        hasPrevious = true;
+        return computed;
+    }
+
+    /**
+     * Forgets the previous sample and closes the file.
+     */
+    public void reset() {
+        hasPrevious = false;
+        HwIoUtils.closeQuietly(file);
+        file = null;
+    }
+
+    private void computeInto(@NonNull CpuUtilization out, int index) {
+        final int offset = index * FIELDS;
+        final long total = current[offset + TOTAL] - previous[offset + TOTAL];
+        if (!previousSeen[index] || !currentSeen[index] || total <= 0) {
+            // offline for at least a part of the interval or the counters got reset
+            out.user[index] = Constants.INVALID;
+            out.system[index] = Constants.INVALID;
+            out.iowait[index] = Constants.INVALID;
+            out.irq[index] = Constants.INVALID;
+            out.busy[index] = Constants.INVALID;
+            return;
+        }
+        out.user[index] = percent(offset + USER, total);
+        out.system[index] = percent(offset + SYSTEM, total);
+        out.iowait[index] = percent(offset + IOWAIT, total);
+        out.irq[index] = percent(offset + IRQ, total);
+        out.busy[index] = 100f - percent(offset + IDLE, total) - out.iowait[index];
+    }
+
+    private void computeTotalInto(@NonNull CpuUtilization out) {
+        final int offset = totalIndex * FIELDS;
+        final long total = current[offset + TOTAL] - previous[offset + TOTAL];
+        if (!previousSeen[totalIndex] || !currentSeen[totalIndex] || total <= 0) {
+            out.totalUser = Constants.INVALID;
+            out.totalSystem = Constants.INVALID;
+            out.totalIowait = Constants.INVALID;
+            out.totalIrq = Constants.INVALID;
+            out.totalBusy = Constants.INVALID;
+            return;
+        }
+        out.totalUser = percent(offset + USER, total);
+        out.totalSystem = percent(offset + SYSTEM, total);
+        out.totalIowait = percent(offset + IOWAIT, total);
+        out.totalIrq = percent(offset + IRQ, total);
+        out.totalBusy = 100f - percent(offset + IDLE, total) - out.totalIowait;
+    }
+
+    private float percent(int field, long total) {
+        final long delta = current[field] - previous[field];
+        return ((delta <= 0) ? 0f : Math.min(100f, (delta * 100f) / total));
+    }
+
+    private boolean readCounters() {
+        try {
+            if (file == null) {
+                final File f = HwIoUtils.getFile(PATH_PROC_STAT);
+                if (!f.canRead()) {
+                    if (Constants.DEBUG) {
+                        Log.w(TAG, "Can not read /proc/stat");
+                    }
+                    return false;
+                }
+                file = new RandomAccessFile(f, "r");
+            }
+            file.seek(0);
+
+            int start = 0;
+            int end = 0;
+            int read;
+            while ((read = file.read(buffer, end, buffer.length - end)) > 0) {
+                final int scanFrom = end;
+                end += read;
+                for (int i = scanFrom; i < end; i++) {
+                    if (buffer[i] != '\n') {
+                        continue;
+                    }
+                    // the cpu lines come first, we are done with the first other line
+                    if (!parseLine(start, i)) {
+                        return true;
+                    }
+                    start = i + 1;
+                }
+
+                if (start > 0) {
+                    end -= start;
+                    System.arraycopy(buffer, start, buffer, 0, end);
+                    start = 0;
+                } else if (end == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+            }
+            return true;
+        } catch (IOException ioe) {
+            if (Constants.DEBUG) {
+                Log.e(TAG, "Could not read /proc/stat", ioe);
+            }
+            reset();
+        }
+        return false;
+    }
+
+    /**
+     * @return True if the line is a cpu line, false otherwise
+     */
+    private boolean parseLine(final int start, final int end) {
+        if (end - start < 4 || buffer[start] != 'c' || buffer[start + 1] != 'p' || buffer[start + 2] != 'u') {
+            return false;
+        }
+
+        int pos = start + 3;
+        final int index;
+        if (buffer[pos] == ' ') {
+            index = totalIndex;
+        } else {
+            int cpu = 0;
+            while (pos < end && buffer[pos] >= '0' && buffer[pos] <= '9') {
+                cpu = cpu * 10 + (buffer[pos] - '0');
+                pos++;
+            }
+            index = ((cpu < indexOfCpu.length) ? indexOfCpu[cpu] : -1);
+        }
+        if (index == -1) {
+            // a cpu we do not track
+            return true;
+        }
+
+        Arrays.fill(columns, 0);
+        for (int column = 0; column < columns.length; column++) {
+            while (pos < end && buffer[pos] == ' ') {
+                pos++;
+            }
+            if (pos == end) {
+                break;
+            }
+            long value = 0;
+            while (pos < end && buffer[pos] >= '0' && buffer[pos] <= '9') {
+                value = value * 10 + (buffer[pos] - '0');
+                pos++;
+            }
+            columns[column] = value;
+        }
+
+        // user nice system idle iowait irq softirq steal
+        final int offset = index * FIELDS;
+        current[offset + USER] = columns[0] + columns[1];
+        current[offset + SYSTEM] = columns[2];
+        current[offset + IDLE] = columns[3];
+        current[offset + IOWAIT] = columns[4];
+        current[offset + IRQ] = columns[5] + columns[6];
+        current[offset + TOTAL] = columns[0] + columns[1] + columns[2] + columns[3] + columns[4]
+                                  + columns[5] + columns[6] + columns[7];
+        currentSeen[index] = true;
+        return true;
+    }
+}
@@ -29,6 +29,7 @@ import android.support.annotation.WorkerThread;
 import android.text.TextUtils;
 
 import java.util.ArrayList;
+import java.util.Map;
 
 import at.amartinz.hardware.utils.HwIoUtils;
 
@@ -38,6 +39,11 @@ import at.amartinz.hardware.utils.HwIoUtils;
 public class EmmcInfo {
     public static final String BRICK_INFO_URL = "http://wiki.cyanogenmod.org/w/EMMC_Bugs";
 
+    private static final String PATH_CID = "/sys/class/block/mmcblk0/device/cid";
+    private static final String PATH_DATE = "/sys/class/block/mmcblk0/device/date";
+    private static final String PATH_MID = "/sys/class/block/mmcblk0/device/manfid";
+    private static final String PATH_NAME = "/sys/class/block/mmcblk0/device/name";
+
     public String cid;
     public String date;
     public String mid;
@@ -60,10 +66,11 @@ public class EmmcInfo {
     }
 
     private EmmcInfo() {
-        cid = HwIoUtils.readOneLine("/sys/class/block/mmcblk0/device/cid");
-        date = HwIoUtils.readOneLine("/sys/class/block/mmcblk0/device/date");
-        mid = HwIoUtils.readOneLine("/sys/class/block/mmcblk0/device/manfid");
-        name = HwIoUtils.readOneLine("/sys/class/block/mmcblk0/device/name");
+        final Map<String, String> contents = HwIoUtils.readFiles(PATH_CID, PATH_DATE, PATH_MID, PATH_NAME);
+        cid = contents.get(PATH_CID);
+        date = contents.get(PATH_DATE);
+        mid = contents.get(PATH_MID);
+        name = contents.get(PATH_NAME);
         rev = ((cid != null && cid.length() > 20) ? cid.substring(18, 20) : "-");
     }
 
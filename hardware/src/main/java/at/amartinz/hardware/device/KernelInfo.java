@@ -35,7 +35,6 @@ import java.util.regex.Pattern;
 import at.amartinz.hardware.Constants;
 import at.amartinz.hardware.utils.HwIoUtils;
 import at.amartinz.execution.Command;
-import at.amartinz.execution.RootCheck;
 
 /**
  * A class which parses /proc/version and prepares information ready for usage
@@ -63,14 +62,14 @@ public class KernelInfo {
     }
 
     @WorkerThread public static void feedWithInformationBlocking(final Device.KernelInfoListener kernelInfoListener) {
-        final String content = HwIoUtils.readFile(PATH_PROC_VERSION);
+        final String content = HwIoUtils.readOneLine(PATH_PROC_VERSION);
         if (!TextUtils.isEmpty(content)) {
             feedWithInformation(content, kernelInfoListener);
             return;
         }
 
         // If we could not read the file and we do not have root, then we can not read it...
-        if (!RootCheck.isRooted()) {
+        if (!HwIoUtils.isRootAvailable()) {
             return;
         }
 
@@ -91,7 +90,7 @@ public class KernelInfo {
             return;
         }
 
-        // replace new lines as the readFile method appends a new line
+        // /proc/version is a single line, the root fallback returns the whole output though
         content = content.replace("\n", "").trim();
 
         // Example (see tests for more):
@@ -26,11 +26,8 @@ package at.amartinz.hardware.device;
 
 import android.os.AsyncTask;
 import android.support.annotation.WorkerThread;
-import android.text.TextUtils;
 
-import at.amartinz.hardware.Constants;
-import at.amartinz.hardware.utils.HwIoUtils;
-import at.amartinz.hardware.utils.HwUtils;
+import at.amartinz.hardware.utils.ProcKeyValueReader;
 
 /**
  * Provides information about the device's memory
@@ -40,9 +37,13 @@ public class MemoryInfo {
     public static final int TYPE_KB = 1;
     public static final int TYPE_MB = 2;
 
-    private static final String MEMTOTAL = "MemTotal:";
-    private static final String MEMCACHED = "Cached:";
-    private static final String MEMFREE = "MemFree:";
+    private static final int KEY_MEMTOTAL = 0;
+    private static final int KEY_MEMFREE = 1;
+    private static final int KEY_MEMCACHED = 2;
+
+    // the keys are at the head of /proc/meminfo, so a refresh stops after the first read
+    private static final ProcKeyValueReader sReader =
+            new ProcKeyValueReader("/proc/meminfo", "MemTotal", "MemFree", "Cached");
 
     public int type;
     public long total;
@@ -69,16 +70,16 @@ public class MemoryInfo {
         final MemoryInfo memoryInfo = new MemoryInfo();
         memoryInfo.type = type;
 
-        final String input = HwIoUtils.readFile("/proc/meminfo");
-        if (!TextUtils.isEmpty(input)) {
-            final String[] parts = input.split("\n");
-            for (final String s : parts) {
-                memoryInfo.checkMemory(s);
+        synchronized (sReader) {
+            if (sReader.read()) {
+                memoryInfo.total = sReader.getLong(KEY_MEMTOTAL);
+                memoryInfo.free = sReader.getLong(KEY_MEMFREE);
+                memoryInfo.cached = sReader.getLong(KEY_MEMCACHED);
+            } else {
+                memoryInfo.total = 0;
+                memoryInfo.free = 0;
+                memoryInfo.cached = 0;
             }
-        } else {
-            memoryInfo.total = 0;
-            memoryInfo.free = 0;
-            memoryInfo.cached = 0;
         }
 
         // Ensure we don't get garbage
@@ -116,26 +117,4 @@ public class MemoryInfo {
         return String.format("%s MB", data);
     }
 
-    private long checkMemory(String content) {
-        if (!TextUtils.isEmpty(content)) {
-            content = content.replace("kB", "");
-
-            if (content.startsWith(MEMTOTAL)) {
-                content = content.replace(MEMTOTAL, "").trim();
-                total = HwUtils.tryParseLong(content);
-                return total;
-            } else if (content.startsWith(MEMCACHED)) {
-                content = content.replace(MEMCACHED, "").trim();
-                cached = HwUtils.tryParseLong(content);
-                return cached;
-            } else if (content.startsWith(MEMFREE)) {
-                content = content.replace(MEMFREE, "").trim();
-                free = HwUtils.tryParseLong(content);
-                return free;
-            }
-        }
-
-        return Constants.INVALID;
-    }
-
 }
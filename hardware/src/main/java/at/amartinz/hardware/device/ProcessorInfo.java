@@ -26,7 +26,6 @@ package at.amartinz.hardware.device;
 
 import android.os.AsyncTask;
 import android.os.Build;
-import android.support.annotation.NonNull;
 import android.support.annotation.WorkerThread;
 import android.text.TextUtils;
 import android.util.Log;
@@ -36,8 +35,8 @@ import java.util.List;
 
 import at.amartinz.hardware.Constants;
 import at.amartinz.hardware.utils.HwIoUtils;
+import at.amartinz.hardware.utils.ProcKeyValueReader;
 import at.amartinz.execution.Command;
-import at.amartinz.execution.RootCheck;
 
 /**
  * A class which parses /proc/cpuinfo and prepares information ready for usage
@@ -46,6 +45,18 @@ public class ProcessorInfo {
     private static final String TAG = ProcessorInfo.class.getSimpleName();
 
     private static final String PATH_PROC_CPU = "/proc/cpuinfo";
+
+    private static final int KEY_PROCESSOR = 0;
+    private static final int KEY_BOGOMIPS = 1;
+    private static final int KEY_FEATURES = 2;
+    private static final int KEY_HARDWARE = 3;
+
+    // like the former line based parsing, the last occurrence wins except for the BogoMIPS
+    private static final ProcKeyValueReader sReader = new ProcKeyValueReader(PATH_PROC_CPU,
+            // newer kernels dropped "Processor" and only report the "model name" per core
+            "Processor|model name", "BogoMIPS", "Features", "Hardware")
+            .setLastOccurrenceWins(KEY_PROCESSOR, KEY_FEATURES, KEY_HARDWARE);
+
     public String processor;
     public String bogomips;
     public String features;
@@ -81,20 +92,31 @@ public class ProcessorInfo {
     }
 
     @WorkerThread public static void feedWithInformationBlocking(final Device.ProcessorInfoListener procInfoListener) {
-        final String content = HwIoUtils.readFile(PATH_PROC_CPU);
-        if (!TextUtils.isEmpty(content)) {
-            feedWithInformation(content, procInfoListener);
+        final ProcessorInfo processorInfo;
+        synchronized (sReader) {
+            processorInfo = (sReader.read() ? fromReader(sReader) : null);
+        }
+        if (processorInfo != null) {
+            notifyListener(processorInfo, procInfoListener);
             return;
         }
 
         // If we could not read the file and we do not have root, then we can not read it...
-        if (!RootCheck.isRooted()) {
+        if (!HwIoUtils.isRootAvailable()) {
             return;
         }
 
         final Command cmd = HwIoUtils.readFileRoot(PATH_PROC_CPU, new HwIoUtils.ReadFileListener() {
             @Override public void onFileRead(String path, String content) {
-                feedWithInformation(content, procInfoListener);
+                if (TextUtils.isEmpty(content)) {
+                    return;
+                }
+                final ProcessorInfo processorInfo;
+                synchronized (sReader) {
+                    sReader.parse(content);
+                    processorInfo = fromReader(sReader);
+                }
+                notifyListener(processorInfo, procInfoListener);
             }
         });
         if (cmd == null) {
@@ -104,44 +126,21 @@ public class ProcessorInfo {
         }
     }
 
-    private static void feedWithInformation(String content, Device.ProcessorInfoListener listener) {
-        if (TextUtils.isEmpty(content)) {
-            return;
-        }
-
+    private static ProcessorInfo fromReader(ProcKeyValueReader reader) {
         final ProcessorInfo processorInfo = new ProcessorInfo();
-        final String[] list = content.split("\n");
-
-        for (final String s : list) {
-            if (s.contains("Processor")) {
-                processorInfo.processor = getData(s);
-            } else if (processorInfo.bogomips == null && s.contains("BogoMIPS")) {
-                processorInfo.bogomips = getData(s);
-            } else if (s.contains("Features")) {
-                processorInfo.features = getData(s);
-            } else if (s.contains("Hardware")) {
-                processorInfo.hardware = getData(s);
-            }
-        }
+        processorInfo.processor = reader.getString(KEY_PROCESSOR);
+        processorInfo.bogomips = reader.getString(KEY_BOGOMIPS);
+        processorInfo.features = reader.getString(KEY_FEATURES);
+        processorInfo.hardware = reader.getString(KEY_HARDWARE);
+        return processorInfo;
+    }
 
+    private static void notifyListener(ProcessorInfo processorInfo, Device.ProcessorInfoListener listener) {
         if (listener != null) {
             listener.onProcessorInfoAvailable(processorInfo);
         }
     }
 
-    @NonNull private static String getData(final String data) {
-        if (data == null) {
-            return "";
-        }
-
-        final String[] splitted = data.split(":");
-        if (splitted.length < 2) {
-            return "";
-        }
-
-        return (splitted[1] != null ? splitted[1].trim() : "");
-    }
-
     public List<String> abisAsList() {
         final ArrayList<String> list = new ArrayList<>();
         final String[] abis = supportedAbis.split(",");
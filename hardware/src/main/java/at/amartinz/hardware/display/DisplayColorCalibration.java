@@ -34,7 +34,8 @@ import at.amartinz.hardware.Constants;
 import at.amartinz.hardware.R;
 import at.amartinz.hardware.utils.HwIoUtils;
 import at.amartinz.hardware.utils.HwUtils;
-import at.amartinz.execution.RootShell;
+import at.amartinz.hardware.utils.PathRegistry;
+import at.amartinz.hardware.utils.RootWriteQueue;
 
 public class DisplayColorCalibration {
     public static final String TAG = DisplayColorCalibration.class.getSimpleName();
@@ -53,45 +54,40 @@ public class DisplayColorCalibration {
         final String[] maxs = res.getStringArray(R.array.hardware_display_color_calibration_max);
         final String[] mins = res.getStringArray(R.array.hardware_display_color_calibration_min);
 
-        final int length = paths.length;
-        for (int i = 0; i < length; i++) {
-            // if the file exists, set up the values
-            if (HwIoUtils.fileExists(paths[i])) {
-                // our existing path
-                path = paths[i];
-
-                // our control path, optional
-                ctrl = ctrls[i];
-                if (TextUtils.isEmpty(ctrl)
-                    // check if we disabled it
-                    || TextUtils.equals(ctrl, "-")
-                    // check if it exists
-                    || !HwIoUtils.fileExists(ctrl)) {
-                    ctrl = null;
-                }
-
-                // maximum
-                max = HwUtils.tryParseInt(maxs[i]);
-                if (Constants.DEBUG) {
-                    Log.i(TAG, String.format("max --> %s", max));
-                }
-
-                // minimum
-                min = HwUtils.tryParseInt(mins[i]);
-                if (Constants.DEBUG) {
-                    Log.i(TAG, String.format("min --> %s", min));
-                }
-
-                // get default value
-                def = defs[i];
-                if (TextUtils.equals("max", def)) {
-                    def = String.valueOf(max);
-                } else if (TextUtils.equals("min", def)) {
-                    def = String.valueOf(min);
-                }
-
-                // and get out of here
-                break;
+        // the index of the existing path, resolved once and cached
+        final int i = PathRegistry.resolveIndex(context, R.array.hardware_display_color_calibration_paths);
+        if (i >= 0) {
+            // our existing path
+            path = paths[i];
+
+            // our control path, optional
+            ctrl = ctrls[i];
+            if (TextUtils.isEmpty(ctrl)
+                // check if we disabled it
+                || TextUtils.equals(ctrl, "-")
+                // check if it exists
+                || !HwIoUtils.fileExists(ctrl)) {
+                ctrl = null;
+            }
+
+            // maximum
+            max = HwUtils.tryParseInt(maxs[i]);
+            if (Constants.DEBUG) {
+                Log.i(TAG, String.format("max --> %s", max));
+            }
+
+            // minimum
+            min = HwUtils.tryParseInt(mins[i]);
+            if (Constants.DEBUG) {
+                Log.i(TAG, String.format("min --> %s", min));
+            }
+
+            // get default value
+            def = defs[i];
+            if (TextUtils.equals("max", def)) {
+                def = String.valueOf(max);
+            } else if (TextUtils.equals("min", def)) {
+                def = String.valueOf(min);
             }
         }
     }
@@ -107,12 +103,14 @@ public class DisplayColorCalibration {
     @Nullable public String getCurColors() { return HwIoUtils.readOneLineRoot(path); }
 
     public void setColors(final String colors) {
-        final StringBuilder sb = new StringBuilder();
-        sb.append(String.format("echo \"%s\" > %s;", colors, path));
+        if (TextUtils.isEmpty(path)) {
+            return;
+        }
+        final RootWriteQueue writeQueue = RootWriteQueue.get();
+        writeQueue.enqueue(path, colors);
         if (!TextUtils.isEmpty(ctrl)) {
-            sb.append(String.format("echo \"%s\" > %s;", "1", ctrl));
+            writeQueue.enqueue(ctrl, "1");
         }
-        RootShell.fireAndForget(sb.toString());
     }
 
     @Nullable public String getPath() {
@@ -31,7 +31,8 @@ import android.support.annotation.Nullable;
 import at.amartinz.hardware.R;
 import at.amartinz.hardware.utils.HwIoUtils;
 import at.amartinz.hardware.utils.HwUtils;
-import at.amartinz.execution.RootShell;
+import at.amartinz.hardware.utils.PathRegistry;
+import at.amartinz.hardware.utils.RootWriteQueue;
 
 public class DisplayGammaCalibration {
     public static final String TAG = DisplayGammaCalibration.class.getSimpleName();
@@ -48,32 +49,15 @@ public class DisplayGammaCalibration {
         final String[] maxs = res.getStringArray(R.array.hardware_display_gamma_calibration_max);
         final String[] mins = res.getStringArray(R.array.hardware_display_gamma_calibration_min);
 
-        String[] splitted;
-        final int length = paths.length;
-        for (int i = 0; i < length; i++) {
-            // split it
-            splitted = paths[i].split(",");
-            boolean exists = false;
-            for (final String path : splitted) {
-                // if the file exists, set up the values
-                if (HwIoUtils.fileExists(path)) {
-                    // and get out of here to continue
-                    exists = true;
-                    break;
-                }
-            }
-
-            // if the controls exist, set up the values and end searching
-            if (exists) {
-                this.paths = splitted;
-                // maximum and minimum
-                max = HwUtils.tryParseInt(maxs[i]);
-                min = HwUtils.tryParseInt(mins[i]);
-                // descriptors
-                descriptors = descs[i].split(",");
-                // get out of here finally
-                break;
-            }
+        // the index of the entry with an existing path, resolved once and cached
+        final int i = PathRegistry.resolveIndex(context, R.array.hardware_display_gamma_calibration_paths);
+        if (i >= 0) {
+            this.paths = paths[i].split(",");
+            // maximum and minimum
+            max = HwUtils.tryParseInt(maxs[i]);
+            min = HwUtils.tryParseInt(mins[i]);
+            // descriptors
+            descriptors = descs[i].split(",");
         }
     }
 
@@ -100,11 +84,10 @@ public class DisplayGammaCalibration {
         }
 
         final String[] split = gamma.split(" ");
-        final StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < paths.length; i++) {
-            sb.append(String.format("echo \"%s\" > %s;", split[i], paths[i]));
+        final RootWriteQueue writeQueue = RootWriteQueue.get();
+        for (int i = 0; i < paths.length && i < split.length; i++) {
+            writeQueue.enqueue(paths[i], split[i]);
         }
-        RootShell.fireAndForget(sb.toString());
     }
 
     public String[] getDescriptors() { return descriptors; }
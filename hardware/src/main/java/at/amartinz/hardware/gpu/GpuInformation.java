@@ -28,17 +28,17 @@ import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.util.Log;
 
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
 import at.amartinz.hardware.Constants;
+import at.amartinz.hardware.utils.FrequencyTable;
 import at.amartinz.hardware.utils.HwUtils;
 
 public class GpuInformation {
     private static final String TAG = GpuInformation.class.getSimpleName();
 
-    public List<Integer> freqAvailable = Collections.emptyList();
+    public FrequencyTable freqAvailable = FrequencyTable.EMPTY;
     public int freqCur = Constants.NOT_INITIALIZED;
     public int freqMax = Constants.NOT_INITIALIZED;
     public int freqMin = Constants.NOT_INITIALIZED;
@@ -55,6 +55,21 @@ public class GpuInformation {
         }
     }
 
+    /**
+     * Marks all values, which are still being initialized, as invalid.
+     */
+    public void resetInitializing() {
+        if (freqCur == Constants.INITIALIZATION_STARTED) {
+            freqCur = Constants.INVALID;
+        }
+        if (freqMax == Constants.INITIALIZATION_STARTED) {
+            freqMax = Constants.INVALID;
+        }
+        if (freqMin == Constants.INITIALIZATION_STARTED) {
+            freqMin = Constants.INVALID;
+        }
+    }
+
     public boolean isInitializing() {
         if (((freqCur == Constants.NOT_INITIALIZED) ||
              (freqCur == Constants.INITIALIZATION_STARTED))) {
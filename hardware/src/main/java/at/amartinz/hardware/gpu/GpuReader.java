@@ -33,22 +33,20 @@ import android.text.TextUtils;
 import android.util.Log;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import at.amartinz.hardware.Constants;
 import at.amartinz.hardware.R;
+import at.amartinz.hardware.utils.FrequencyTable;
 import at.amartinz.hardware.utils.HwIoUtils;
 import at.amartinz.hardware.utils.HwUtils;
+import at.amartinz.hardware.utils.PendingReads;
 import at.amartinz.execution.Command;
-import at.amartinz.execution.RootCheck;
 
 public class GpuReader {
     private static final String TAG = GpuReader.class.getSimpleName();
 
-    private static String basePath;
-    private static String freqAvailPath;
-    private static String freqCurPath;
-
     private GpuReader() { }
 
     public static void getGpuInformation(Context context, GpuInformationListener listener) {
@@ -58,58 +56,42 @@ public class GpuReader {
     @WorkerThread public static GpuInformation getGpuInformationBlocking(Context context) {
         final GpuInformation gpuInformation = new GpuInformation();
 
-        gpuInformation.freqAvailable = readAvailableFrequencies(context);
+        final String freqAvailPath = getFreqAvailPath(context);
+        final String freqCurPath = getFreqCurPath(context);
+        final Map<String, String> contents = HwIoUtils.readFiles(freqAvailPath, freqCurPath);
+
+        gpuInformation.freqAvailable = readAvailableFrequencies(contents.get(freqAvailPath));
         if (gpuInformation.freqAvailable.isEmpty()) {
             gpuInformation.freqMax = Constants.INVALID;
             gpuInformation.freqMin = Constants.INVALID;
         } else {
-            gpuInformation.freqMax = gpuInformation.freqAvailable.get(gpuInformation.freqAvailable.size() - 1);
-            gpuInformation.freqMin = gpuInformation.freqAvailable.get(0);
+            gpuInformation.freqMax = gpuInformation.freqAvailable.max();
+            gpuInformation.freqMin = gpuInformation.freqAvailable.min();
         }
 
-        gpuInformation.freqCur = HwIoUtils.readSysfsIntValue(getFreqCurPath(context));
+        gpuInformation.freqCur = HwUtils.tryParseInt(contents.get(freqCurPath));
 
         return gpuInformation;
     }
 
     @Nullable public static String getBasePath(Context context) {
-        if (basePath == null) {
-            basePath = HwIoUtils.getPath(context, R.array.hardware_gpu_base);
-        }
-        return basePath;
+        return HwIoUtils.getPath(context, R.array.hardware_gpu_base);
     }
 
     @Nullable public static String getFreqAvailPath(Context context) {
-        if (freqAvailPath == null) {
-            freqAvailPath = HwIoUtils.getPath(context, R.array.hardware_gpu_freqs_avail, getBasePath(context));
-        }
-        return freqAvailPath;
+        return HwIoUtils.getPath(context, R.array.hardware_gpu_freqs_avail, getBasePath(context));
     }
 
     @Nullable public static String getFreqCurPath(Context context) {
-        if (freqCurPath == null) {
-            freqCurPath = HwIoUtils.getPath(context, R.array.hardware_gpu_freqs_cur, getBasePath(context));
-        }
-        return freqCurPath;
+        return HwIoUtils.getPath(context, R.array.hardware_gpu_freqs_cur, getBasePath(context));
     }
 
-    @NonNull private static ArrayList<Integer> readAvailableFrequencies(Context context) {
-        final String freqAvailPath = getFreqAvailPath(context);
-        return readAvailableFrequencies(HwIoUtils.readFile(freqAvailPath));
+    @Nullable public static String getFreqMaxPath(Context context) {
+        return HwIoUtils.getPath(context, R.array.hardware_gpu_freqs_max, getBasePath(context));
     }
 
-    @NonNull private static ArrayList<Integer> readAvailableFrequencies(final String freqString) {
-        final ArrayList<Integer> availableFreqs = new ArrayList<>();
-        if (!TextUtils.isEmpty(freqString)) {
-            final String[] splitted = freqString.split(" ");
-            for (final String s : splitted) {
-                availableFreqs.add(HwUtils.tryParseInt(s));
-            }
-        }
-        if (!availableFreqs.isEmpty()) {
-            Collections.sort(availableFreqs);
-        }
-        return availableFreqs;
+    @NonNull private static FrequencyTable readAvailableFrequencies(final String freqString) {
+        return FrequencyTable.parse(freqString);
     }
 
     private static class ReadGpuInformationRunnable implements Runnable {
@@ -117,7 +99,6 @@ public class GpuReader {
         private final GpuInformationListener listener;
 
         private GpuInformation gpuInformation;
-        private boolean hasFinished;
 
         public ReadGpuInformationRunnable(Context context, GpuInformationListener listener) {
             super();
@@ -127,68 +108,89 @@ public class GpuReader {
 
         @Override public void run() {
             gpuInformation = getGpuInformationBlocking(context);
-            // if the gpu information contains an invalid value AND we are not using root, finish
-            if (gpuInformation.isValid() || !RootCheck.isRooted()) {
-                hasFinished = true;
-            } else {
+            // if the gpu information contains an invalid value AND we are using root, retry with root
+            if (!gpuInformation.isValid() && HwIoUtils.isRootAvailable()) {
                 gpuInformation.resetInvalid();
+                readWithRoot();
             }
 
-            while (!hasFinished) {
-                if (gpuInformation.freqCur == Constants.NOT_INITIALIZED) {
-                    Command cmd = HwIoUtils.readFileRoot(getFreqCurPath(context), readFileListener);
-                    if (cmd == null) {
-                        if (Constants.DEBUG) {
-                            Log.e(TAG, "Could not read file with root!");
-                        }
-                        break;
-                    } else {
-                        gpuInformation.freqCur = Constants.INITIALIZATION_STARTED;
-                    }
+            if (listener != null) {
+                listener.onGpuInformation(gpuInformation);
+            }
+        }
+
+        private void readWithRoot() {
+            // collect everything we could not read and read it with root in one go
+            final ArrayList<String> paths = new ArrayList<>(2);
+            // values without a known path can not be read at all
+            final String freqCurPath = getFreqCurPath(context);
+            if (gpuInformation.freqCur == Constants.NOT_INITIALIZED) {
+                if (TextUtils.isEmpty(freqCurPath)) {
+                    gpuInformation.freqCur = Constants.INVALID;
+                } else {
+                    paths.add(freqCurPath);
+                    gpuInformation.freqCur = Constants.INITIALIZATION_STARTED;
                 }
-                if ((gpuInformation.freqMax == Constants.NOT_INITIALIZED) ||
-                    (gpuInformation.freqMin == Constants.NOT_INITIALIZED)) {
-                    Command cmd = HwIoUtils.readFileRoot(getFreqAvailPath(context), readFileListener);
-                    if (cmd == null) {
-                        if (Constants.DEBUG) {
-                            Log.e(TAG, "Could not read file with root!");
-                        }
-                        break;
-                    } else {
-                        gpuInformation.freqMin = Constants.INITIALIZATION_STARTED;
-                        gpuInformation.freqMax = Constants.INITIALIZATION_STARTED;
-                    }
+            }
+            final String freqAvailPath = getFreqAvailPath(context);
+            if ((gpuInformation.freqMax == Constants.NOT_INITIALIZED) ||
+                (gpuInformation.freqMin == Constants.NOT_INITIALIZED)) {
+                if (TextUtils.isEmpty(freqAvailPath)) {
+                    gpuInformation.freqMin = Constants.INVALID;
+                    gpuInformation.freqMax = Constants.INVALID;
+                } else {
+                    paths.add(freqAvailPath);
+                    gpuInformation.freqMin = Constants.INITIALIZATION_STARTED;
+                    gpuInformation.freqMax = Constants.INITIALIZATION_STARTED;
                 }
+            }
 
-                // if we have read all values, we are done
-                hasFinished = !gpuInformation.isInitializing();
+            final PendingReads pendingReads = new PendingReads(paths);
+            final Command cmd = HwIoUtils.readFilesRoot(paths.toArray(new String[paths.size()]),
+                    new HwIoUtils.ReadFileListener() {
+                        @Override public void onFileRead(String path, String content) {
+                            synchronized (pendingReads) {
+                                if (pendingReads.isPending(path)) {
+                                    onRootFileRead(path, content);
+                                    pendingReads.complete(path);
+                                }
+                            }
+                        }
+                    });
+            if (cmd == null) {
+                if (!paths.isEmpty() && Constants.DEBUG) {
+                    Log.e(TAG, "Could not read files with root!");
+                }
+                pendingReads.cancel();
+            } else if (!pendingReads.await(PendingReads.DEFAULT_TIMEOUT, TimeUnit.MILLISECONDS) && Constants.DEBUG) {
+                Log.w(TAG, String.format("Timed out reading with root -> %s", pendingReads.getPending()));
             }
 
-            if (listener != null) {
-                listener.onGpuInformation(gpuInformation);
+            synchronized (pendingReads) {
+                // ignore results arriving too late and do not report values, which never arrived
+                pendingReads.cancel();
+                gpuInformation.resetInitializing();
             }
         }
 
-        private final HwIoUtils.ReadFileListener readFileListener = new HwIoUtils.ReadFileListener() {
-            @Override public void onFileRead(String path, String content) {
-                if (TextUtils.isEmpty(path)) {
-                    return;
-                }
-                if (TextUtils.equals(getFreqAvailPath(context), path)) {
-                    final ArrayList<Integer> availableFreqs = readAvailableFrequencies(content);
-                    if (availableFreqs.isEmpty()) {
-                        gpuInformation.freqMax = Constants.INVALID;
-                        gpuInformation.freqMin = Constants.INVALID;
-                    } else {
-                        gpuInformation.freqMax = availableFreqs.get(availableFreqs.size() - 1);
-                        gpuInformation.freqMin = availableFreqs.get(0);
-                    }
-                    gpuInformation.freqAvailable = availableFreqs;
-                } else if (TextUtils.equals(getFreqCurPath(context), path)) {
-                    gpuInformation.freqCur = HwUtils.tryParseInt(content);
+        private void onRootFileRead(String path, String content) {
+            if (TextUtils.isEmpty(path)) {
+                return;
+            }
+            if (TextUtils.equals(getFreqAvailPath(context), path)) {
+                final FrequencyTable availableFreqs = readAvailableFrequencies(content);
+                if (availableFreqs.isEmpty()) {
+                    gpuInformation.freqMax = Constants.INVALID;
+                    gpuInformation.freqMin = Constants.INVALID;
+                } else {
+                    gpuInformation.freqMax = availableFreqs.max();
+                    gpuInformation.freqMin = availableFreqs.min();
                 }
+                gpuInformation.freqAvailable = availableFreqs;
+            } else if (TextUtils.equals(getFreqCurPath(context), path)) {
+                gpuInformation.freqCur = HwUtils.tryParseInt(content);
             }
-        };
+        }
     }
 
 
@@ -84,7 +84,10 @@ public class IoScheduler {
     }
 
     @WorkerThread @Nullable public static IoScheduler getIoSchedulerBlocking() {
-        final String content = RootShell.fireAndBlockString(String.format("cat %s", IO_SCHEDULER_PATH[0]));
+        String content = HwIoUtils.readFile(IO_SCHEDULER_PATH[0]);
+        if (TextUtils.isEmpty(content) && HwIoUtils.isRootAvailable()) {
+            content = RootShell.fireAndBlockString(String.format("cat %s", IO_SCHEDULER_PATH[0]));
+        }
         if (TextUtils.isEmpty(content)) {
             return null;
         }
@@ -102,7 +105,7 @@ public class IoScheduler {
             return;
         }
 
-        final RootShell rootShell = ShellManager.get().getRootShell();
+        final RootShell rootShell = (HwIoUtils.isRootAvailable() ? ShellManager.get().getRootShell() : null);
         if (rootShell != null) {
             final StringBuilder outputCollector = new StringBuilder();
             final Command command = new Command(String.format("cat %s", IO_SCHEDULER_PATH[0])) {
@@ -0,0 +1,60 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.thermal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * A cooling device of the thermal framework, eg. a cpufreq or gpufreq limit, a fan or a charge limit.
+ * <p>
+ * The state ranges from 0, not cooling at all, up to {@link #maxState}.
+ */
+public class CoolingDevice {
+    public final int id;
+    @Nullable public final String type;
+    public final int maxState;
+
+    private final String path;
+
+    CoolingDevice(int id, @Nullable String type, int maxState, @NonNull String path) {
+        this.id = id;
+        this.type = type;
+        this.maxState = maxState;
+        this.path = path;
+    }
+
+    @NonNull public String getPathCurState() {
+        return path + "cur_state";
+    }
+
+    @NonNull public String getPathMaxState() {
+        return path + "max_state";
+    }
+
+    @NonNull @Override public String toString() {
+        return String.format("cooling_device%s: %s (max %s)", id, type, maxState);
+    }
+}
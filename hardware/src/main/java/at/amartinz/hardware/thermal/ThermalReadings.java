@@ -0,0 +1,151 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.thermal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+import at.amartinz.hardware.Constants;
+
+/**
+ * The temperatures of all thermal zones and the states of all cooling devices at one point in time.
+ * <p>
+ * Temperatures, which could not be read, are {@link ThermalZones#INVALID_TEMPERATURE}, cooling states
+ * {@link Constants#INVALID}.
+ * Instances get reused by their sampler, copy the values if they need to be kept.
+ */
+public class ThermalReadings {
+    public final List<ThermalZone> zones;
+    public final List<CoolingDevice> coolingDevices;
+
+    // per zone, in millidegree Celsius
+    public final int[] temperatures;
+    // per cooling device
+    public final int[] coolingStates;
+
+    // elapsed realtime of the sample, in milliseconds
+    public long timestamp;
+
+    public ThermalReadings(@NonNull List<ThermalZone> zones, @NonNull List<CoolingDevice> coolingDevices) {
+        this.zones = zones;
+        this.coolingDevices = coolingDevices;
+        temperatures = new int[zones.size()];
+        coolingStates = new int[coolingDevices.size()];
+        Arrays.fill(temperatures, ThermalZones.INVALID_TEMPERATURE);
+        Arrays.fill(coolingStates, Constants.INVALID);
+    }
+
+    /**
+     * @return The index of the zone with the given type or -1 if there is none
+     */
+    public int indexOfType(@Nullable String type) {
+        for (int i = 0; i < zones.size(); i++) {
+            final String zoneType = zones.get(i).type;
+            if (zoneType != null && zoneType.equals(type)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The index of the hottest zone or -1 if no temperature could be read
+     */
+    public int getHottestZone() {
+        return getHottestZone(Constants.INVALID);
+    }
+
+    /**
+     * @param kind One of the ThermalZone.KIND_* constants or {@link Constants#INVALID} for any kind
+     * @return The index of the hottest zone of the given kind or -1 if there is none
+     */
+    public int getHottestZone(int kind) {
+        int hottest = -1;
+        for (int i = 0; i < temperatures.length; i++) {
+            if (temperatures[i] == ThermalZones.INVALID_TEMPERATURE || (kind != Constants.INVALID && zones.get(i).kind != kind)) {
+                continue;
+            }
+            if (hottest == -1 || temperatures[i] > temperatures[hottest]) {
+                hottest = i;
+            }
+        }
+        return hottest;
+    }
+
+    /**
+     * @return The temperature of the zone at the given index in degree Celsius or {@link Float#NaN}
+     * if it could not be read
+     */
+    public float getCelsius(int index) {
+        final int temperature = temperatures[index];
+        return ((temperature != ThermalZones.INVALID_TEMPERATURE) ? temperature / 1000f : Float.NaN);
+    }
+
+    /**
+     * @return The hottest trip point the zone at the given index reached or null if none got reached
+     */
+    @Nullable public TripPoint getReachedTripPoint(int index) {
+        final int temperature = temperatures[index];
+        return ((temperature != ThermalZones.INVALID_TEMPERATURE) ? zones.get(index).getReachedTripPoint(temperature) : null);
+    }
+
+    /**
+     * @return True if any cooling device is in a state above 0
+     */
+    public boolean isCooling() {
+        for (final int state : coolingStates) {
+            if (state > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NonNull public ThermalReadings copy() {
+        final ThermalReadings copy = new ThermalReadings(zones, coolingDevices);
+        System.arraycopy(temperatures, 0, copy.temperatures, 0, temperatures.length);
+        System.arraycopy(coolingStates, 0, copy.coolingStates, 0, coolingStates.length);
+        copy.timestamp = timestamp;
+        return copy;
+    }
+
+    @Override public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < temperatures.length; i++) {
+            if (i > 0) {
+                sb.append(" | ");
+            }
+            sb.append(String.format("%s: %.1f", zones.get(i).type, getCelsius(i)));
+        }
+        for (int i = 0; i < coolingStates.length; i++) {
+            final CoolingDevice device = coolingDevices.get(i);
+            sb.append(String.format(" | %s: %s/%s", device.type, coolingStates[i], device.maxState));
+        }
+        return sb.toString();
+    }
+}
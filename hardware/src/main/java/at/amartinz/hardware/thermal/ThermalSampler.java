@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.thermal;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import java.util.List;
+
+import at.amartinz.hardware.Constants;
+import at.amartinz.hardware.utils.SysfsHandle;
+
+/**
+ * Samples the temperatures of all thermal zones and the states of all cooling devices.
+ * <p>
+ * Every node gets reread through a persistent {@link SysfsHandle} and parsed without allocating,
+ * which keeps sampling cheap enough to run continuously.
+ * <pre>
+ * final ThermalSampler sampler = new ThermalSampler();
+ * final ThermalReadings readings = sampler.createReadings();
+ * sampler.sample(readings);
+ * final int hottest = readings.getHottestZone(ThermalZone.KIND_CPU);
+ * </pre>
+ */
+public class ThermalSampler {
+    private final List<ThermalZone> zones;
+    private final List<CoolingDevice> coolingDevices;
+
+    private final SysfsHandle[] tempHandles;
+    private final SysfsHandle[] coolingHandles;
+
+    @WorkerThread public ThermalSampler() {
+        this(ThermalZones.getZones(), ThermalZones.getCoolingDevices());
+    }
+
+    public ThermalSampler(@NonNull List<ThermalZone> zones, @NonNull List<CoolingDevice> coolingDevices) {
+        this.zones = zones;
+        this.coolingDevices = coolingDevices;
+        tempHandles = new SysfsHandle[zones.size()];
+        for (int i = 0; i < tempHandles.length; i++) {
+            tempHandles[i] = SysfsHandle.obtain(zones.get(i).getPathTemp());
+        }
+        coolingHandles = new SysfsHandle[coolingDevices.size()];
+        for (int i = 0; i < coolingHandles.length; i++) {
+            coolingHandles[i] = SysfsHandle.obtain(coolingDevices.get(i).getPathCurState());
+        }
+    }
+
+    @NonNull public List<ThermalZone> getZones() {
+        return zones;
+    }
+
+    @NonNull public List<CoolingDevice> getCoolingDevices() {
+        return coolingDevices;
+    }
+
+    /**
+     * @return Readings, which match the zones and cooling devices of this sampler
+     */
+    @NonNull public ThermalReadings createReadings() {
+        return new ThermalReadings(zones, coolingDevices);
+    }
+
+    /**
+     * @param out The readings to fill, see {@link #createReadings()}
+     */
+    @WorkerThread public synchronized void sample(@NonNull ThermalReadings out) {
+        for (int i = 0; i < tempHandles.length; i++) {
+            out.temperatures[i] = ThermalZones.toMilliCelsius(tempHandles[i].readLong());
+        }
+        for (int i = 0; i < coolingHandles.length; i++) {
+            final int state = coolingHandles[i].readInt();
+            out.coolingStates[i] = ((state >= 0) ? state : Constants.INVALID);
+        }
+        out.timestamp = SystemClock.elapsedRealtime();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.thermal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A thermal zone with its trip points and the cooling devices bound to it.
+ * <p>
+ * The type is whatever the kernel reports, which differs between vendors. {@link #kind} tries to
+ * map it to the part of the device the sensor belongs to.
+ */
+public class ThermalZone {
+    public static final int KIND_OTHER = 0;
+    public static final int KIND_CPU = 1;
+    public static final int KIND_GPU = 2;
+    public static final int KIND_BATTERY = 3;
+    public static final int KIND_SKIN = 4;
+
+    public final int id;
+    @Nullable public final String type;
+    // one of the KIND_* constants
+    public final int kind;
+    // ordered by index
+    public final List<TripPoint> tripPoints;
+    public final List<CoolingDevice> coolingDevices;
+
+    private final String path;
+
+    ThermalZone(int id, @Nullable String type, @NonNull List<TripPoint> tripPoints,
+            @NonNull List<CoolingDevice> coolingDevices, @NonNull String path) {
+        this.id = id;
+        this.type = type;
+        this.kind = guessKind(type);
+        this.tripPoints = tripPoints;
+        this.coolingDevices = coolingDevices;
+        this.path = path;
+    }
+
+    @NonNull public String getPathTemp() {
+        return path + "temp";
+    }
+
+    /**
+     * @param temperature The temperature, in millidegree Celsius
+     * @return The hottest trip point, which got reached at the given temperature, or null if none got reached
+     */
+    @Nullable public TripPoint getReachedTripPoint(int temperature) {
+        TripPoint reached = null;
+        for (final TripPoint tripPoint : tripPoints) {
+            if (temperature >= tripPoint.temperature
+                && (reached == null || tripPoint.temperature > reached.temperature)) {
+                reached = tripPoint;
+            }
+        }
+        return reached;
+    }
+
+    static int guessKind(@Nullable String type) {
+        if (TextUtils.isEmpty(type)) {
+            return KIND_OTHER;
+        }
+        final String lower = type.toLowerCase(Locale.US);
+        if (lower.contains("batt") || lower.contains("bms")) {
+            return KIND_BATTERY;
+        }
+        if (lower.contains("skin") || lower.contains("xo_therm") || lower.contains("quiet")
+            || lower.contains("ambient") || lower.contains("case")) {
+            return KIND_SKIN;
+        }
+        if (lower.contains("gpu") || lower.contains("kgsl") || lower.contains("mali") || lower.contains("g3d")) {
+            return KIND_GPU;
+        }
+        if (lower.contains("cpu") || lower.contains("tsens") || lower.contains("cluster") || lower.contains("apc")
+            || lower.contains("core") || lower.contains("big") || lower.contains("little")) {
+            return KIND_CPU;
+        }
+        return KIND_OTHER;
+    }
+
+    @NonNull @Override public String toString() {
+        return String.format("thermal_zone%s: %s (kind %s) | trips: %s | cooling: %s", id, type, kind,
+                tripPoints, coolingDevices);
+    }
+}
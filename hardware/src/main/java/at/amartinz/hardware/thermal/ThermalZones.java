@@ -0,0 +1,263 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.thermal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import at.amartinz.hardware.Constants;
+import at.amartinz.hardware.utils.HwIoUtils;
+import at.amartinz.hardware.utils.HwUtils;
+import at.amartinz.hardware.utils.SysfsHandle;
+
+/**
+ * Discovers the thermal zones and cooling devices of the device.
+ * <p>
+ * Zones and cooling devices get discovered once, by walking /sys/class/thermal. Their types, trip
+ * points and max states get read with one batched read, cooling devices get bound to the zones by
+ * resolving the cdevN links of every zone.
+ */
+public class ThermalZones {
+    private static final String TAG = ThermalZones.class.getSimpleName();
+
+    /**
+     * Marks temperatures, which could not be read. Unlike {@link Constants#INVALID} it can not
+     * collide with a valid reading, as {@link #toMilliCelsius(long)} never returns it for one.
+     */
+    public static final int INVALID_TEMPERATURE = Integer.MIN_VALUE;
+
+    private static final String PATH_THERMAL = "/sys/class/thermal/";
+    private static final String ZONE_PREFIX = "thermal_zone";
+    private static final String COOLING_PREFIX = "cooling_device";
+    private static final String CDEV_PREFIX = "cdev";
+    private static final String TRIP_PREFIX = "trip_point_";
+    private static final String TRIP_TEMP_SUFFIX = "_temp";
+
+    private static final String PATH_FALLBACK_TEMPERATURE = PATH_THERMAL + ZONE_PREFIX + "0/temp";
+
+    private static List<ThermalZone> sZones;
+    private static List<CoolingDevice> sCoolingDevices;
+
+    private ThermalZones() { }
+
+    /**
+     * @return The thermal zones, ordered by id, or an empty list if the device does not expose any
+     */
+    @WorkerThread @NonNull public static synchronized List<ThermalZone> getZones() {
+        discoverIfNeeded();
+        return ((sZones != null) ? sZones : Collections.<ThermalZone>emptyList());
+    }
+
+    /**
+     * @return The cooling devices, ordered by id, or an empty list if the device does not expose any
+     */
+    @WorkerThread @NonNull public static synchronized List<CoolingDevice> getCoolingDevices() {
+        discoverIfNeeded();
+        return ((sCoolingDevices != null) ? sCoolingDevices : Collections.<CoolingDevice>emptyList());
+    }
+
+    /**
+     * @return The temperature node of the first zone, which belongs to the cpu, or of thermal_zone0
+     */
+    @WorkerThread @NonNull public static String getPathCpuTemperature() {
+        for (final ThermalZone zone : getZones()) {
+            if (zone.kind == ThermalZone.KIND_CPU) {
+                return zone.getPathTemp();
+            }
+        }
+        return PATH_FALLBACK_TEMPERATURE;
+    }
+
+    /**
+     * Drops the discovered zones, they get discovered again on the next access.
+     */
+    public static synchronized void invalidate() {
+        sZones = null;
+        sCoolingDevices = null;
+    }
+
+    /**
+     * Some kernels report degree or decidegree Celsius instead of millidegree Celsius.
+     *
+     * @param raw The value of a temp node or {@link SysfsHandle#INVALID_LONG} if it could not be read
+     * @return The temperature in millidegree Celsius or {@link #INVALID_TEMPERATURE} if the value is invalid
+     */
+    public static int toMilliCelsius(long raw) {
+        if (raw == SysfsHandle.INVALID_LONG) {
+            return INVALID_TEMPERATURE;
+        }
+        final long abs = Math.abs(raw);
+        if (abs <= 200) {
+            return (int) (raw * 1000);
+        }
+        if (abs < 2000) {
+            return (int) (raw * 100);
+        }
+        return (int) Math.max(INVALID_TEMPERATURE + 1, Math.min(Integer.MAX_VALUE, raw));
+    }
+
+    private static int parseMilliCelsius(@Nullable String value) {
+        final Long raw = HwUtils.tryParseLongRaw(value);
+        return toMilliCelsius((raw != null) ? raw : SysfsHandle.INVALID_LONG);
+    }
+
+    private static void discoverIfNeeded() {
+        if (sZones != null) {
+            return;
+        }
+        final ArrayList<Integer> zoneIds = new ArrayList<>();
+        final ArrayList<Integer> coolingIds = new ArrayList<>();
+        for (final String name : HwIoUtils.listFiles(PATH_THERMAL)) {
+            if (name.startsWith(ZONE_PREFIX)) {
+                final int id = HwUtils.tryParseInt(name.substring(ZONE_PREFIX.length()));
+                if (id >= 0) {
+                    zoneIds.add(id);
+                }
+            } else if (name.startsWith(COOLING_PREFIX)) {
+                final int id = HwUtils.tryParseInt(name.substring(COOLING_PREFIX.length()));
+                if (id >= 0) {
+                    coolingIds.add(id);
+                }
+            }
+        }
+        if (zoneIds.isEmpty()) {
+            // not cached, the nodes might not be listable yet
+            return;
+        }
+        Collections.sort(zoneIds);
+        Collections.sort(coolingIds);
+
+        // list every zone once, for its trip points and cooling device links
+        final ArrayList<String> paths = new ArrayList<>();
+        final HashMap<Integer, List<String>> zoneFiles = new HashMap<>();
+        for (final int id : zoneIds) {
+            final String path = getPathZone(id);
+            final List<String> files = HwIoUtils.listFiles(path);
+            zoneFiles.put(id, files);
+            paths.add(path + "type");
+            for (final String file : files) {
+                if (file.startsWith(TRIP_PREFIX)) {
+                    paths.add(path + file);
+                }
+            }
+        }
+        for (final int id : coolingIds) {
+            paths.add(getPathCoolingDevice(id) + "type");
+            paths.add(getPathCoolingDevice(id) + "max_state");
+        }
+        final Map<String, String> contents = HwIoUtils.readFiles(paths.toArray(new String[paths.size()]));
+
+        final HashMap<String, CoolingDevice> coolingDevices = new HashMap<>();
+        final ArrayList<CoolingDevice> coolingList = new ArrayList<>(coolingIds.size());
+        for (final int id : coolingIds) {
+            final String path = getPathCoolingDevice(id);
+            final CoolingDevice device = new CoolingDevice(id, contents.get(path + "type"),
+                    HwUtils.tryParseInt(contents.get(path + "max_state")), path);
+            coolingDevices.put(COOLING_PREFIX + id, device);
+            coolingList.add(device);
+        }
+
+        final ArrayList<ThermalZone> zones = new ArrayList<>(zoneIds.size());
+        for (final int id : zoneIds) {
+            final String path = getPathZone(id);
+            final List<String> files = zoneFiles.get(id);
+            zones.add(new ThermalZone(id, contents.get(path + "type"), readTripPoints(path, files, contents),
+                    resolveCoolingDevices(path, files, coolingDevices), path));
+        }
+
+        sZones = Collections.unmodifiableList(zones);
+        sCoolingDevices = Collections.unmodifiableList(coolingList);
+        if (Constants.DEBUG) {
+            Log.v(TAG, String.format("discovered zones -> %s", sZones));
+        }
+    }
+
+    @NonNull private static List<TripPoint> readTripPoints(@NonNull String path, @NonNull List<String> files,
+            @NonNull Map<String, String> contents) {
+        final ArrayList<TripPoint> tripPoints = new ArrayList<>();
+        for (final String file : files) {
+            if (!file.startsWith(TRIP_PREFIX) || !file.endsWith(TRIP_TEMP_SUFFIX)) {
+                continue;
+            }
+            final String indexString = file.substring(TRIP_PREFIX.length(), file.length() - TRIP_TEMP_SUFFIX.length());
+            final int index = HwUtils.tryParseInt(indexString);
+            final int temperature = parseMilliCelsius(contents.get(path + file));
+            if (index < 0 || temperature == INVALID_TEMPERATURE) {
+                continue;
+            }
+            final String prefix = path + TRIP_PREFIX + indexString;
+            final int hysteresis = parseMilliCelsius(contents.get(prefix + "_hyst"));
+            tripPoints.add(new TripPoint(index, temperature, hysteresis, contents.get(prefix + "_type")));
+        }
+        Collections.sort(tripPoints, new Comparator<TripPoint>() {
+            @Override public int compare(TripPoint lhs, TripPoint rhs) {
+                return (lhs.index < rhs.index) ? -1 : ((lhs.index == rhs.index) ? 0 : 1);
+            }
+        });
+        return Collections.unmodifiableList(tripPoints);
+    }
+
+    @NonNull private static List<CoolingDevice> resolveCoolingDevices(@NonNull String path, @NonNull List<String> files,
+            @NonNull Map<String, CoolingDevice> coolingDevices) {
+        final ArrayList<CoolingDevice> result = new ArrayList<>();
+        for (final String file : files) {
+            // cdevN links to the cooling device, cdevN_trip_point and cdevN_weight are attributes
+            if (!file.startsWith(CDEV_PREFIX) || file.indexOf('_') != -1) {
+                continue;
+            }
+            final File link = HwIoUtils.getFile(path + file);
+            try {
+                final CoolingDevice device = coolingDevices.get(link.getCanonicalFile().getName());
+                if (device != null && !result.contains(device)) {
+                    result.add(device);
+                }
+            } catch (IOException ioe) {
+                if (Constants.DEBUG) {
+                    Log.w(TAG, String.format("Could not resolve cooling device -> %s", link), ioe);
+                }
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @NonNull private static String getPathZone(int id) {
+        return PATH_THERMAL + ZONE_PREFIX + id + "/";
+    }
+
+    @NonNull private static String getPathCoolingDevice(int id) {
+        return PATH_THERMAL + COOLING_PREFIX + id + "/";
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.thermal;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.util.List;
+
+import at.amartinz.hardware.Constants;
+import at.amartinz.hardware.cpu.CpuCluster;
+import at.amartinz.hardware.cpu.CpuTopology;
+import at.amartinz.hardware.gpu.GpuReader;
+import at.amartinz.hardware.utils.FrequencyTable;
+import at.amartinz.hardware.utils.HwIoUtils;
+import at.amartinz.hardware.utils.SysfsHandle;
+
+/**
+ * Detects when the max frequency of a cpufreq policy or of the gpu gets capped below its hardware limit.
+ * <p>
+ * The limit of a policy is its cpuinfo_max_freq, the limit of the gpu is its highest available
+ * frequency. If a limit can not be read, the highest max frequency seen so far is used instead.
+ * Every check only rereads one max frequency node per policy and one for the gpu, the thermal
+ * zones only get sampled when a cap starts, to find the hottest zone.
+ * <p>
+ * Caps can not be told apart from limits set by the user or by a power hal, the hottest zone helps
+ * to correlate them with the temperature.
+ */
+public class ThrottleDetector {
+    private static final String TAG = ThrottleDetector.class.getSimpleName();
+
+    public static final int DEFAULT_INTERVAL = 1000;
+
+    public interface ThrottleListener {
+        void onThrottleEvent(@NonNull ThrottleEvent event);
+    }
+
+    // per domain, the cpufreq policies followed by the gpu
+    private final int[] domains;
+    private final int[] indices;
+    private final SysfsHandle[] maxHandles;
+    private final int[] limits;
+
+    // state of the current cap per domain
+    private final boolean[] capped;
+    private final int[] lowestCaps;
+    private final long[] startTimes;
+    private final ThermalZone[] onsetZones;
+    private final int[] onsetTemperatures;
+
+    private final ThermalSampler thermalSampler;
+    private final ThermalReadings thermalReadings;
+
+    private HandlerThread detectorThread;
+    private Handler detectorHandler;
+    private volatile Handler callbackHandler;
+    private volatile ThrottleListener listener;
+    private volatile int interval = DEFAULT_INTERVAL;
+
+    /**
+     * Follows all cpufreq policies and the gpu, if its max frequency node exists.
+     */
+    @WorkerThread public ThrottleDetector(@NonNull Context context) {
+        this(CpuTopology.getClusters(), GpuReader.getFreqMaxPath(context),
+                FrequencyTable.read(GpuReader.getFreqAvailPath(context)), new ThermalSampler());
+    }
+
+    /**
+     * @param clusters       The cpufreq policies to follow
+     * @param gpuFreqMaxPath The max frequency node of the gpu or null to not follow the gpu
+     * @param gpuFreqAvail   The available frequencies of the gpu, its highest frequency is the limit
+     */
+    @WorkerThread public ThrottleDetector(@NonNull List<CpuCluster> clusters, @Nullable String gpuFreqMaxPath,
+            @Nullable FrequencyTable gpuFreqAvail, @NonNull ThermalSampler thermalSampler) {
+        final boolean hasGpu = !TextUtils.isEmpty(gpuFreqMaxPath);
+        final int count = clusters.size() + (hasGpu ? 1 : 0);
+        domains = new int[count];
+        indices = new int[count];
+        maxHandles = new SysfsHandle[count];
+        limits = new int[count];
+        capped = new boolean[count];
+        lowestCaps = new int[count];
+        startTimes = new long[count];
+        onsetZones = new ThermalZone[count];
+        onsetTemperatures = new int[count];
+
+        for (int i = 0; i < clusters.size(); i++) {
+            final CpuCluster cluster = clusters.get(i);
+            domains[i] = ThrottleEvent.DOMAIN_CPU;
+            indices[i] = cluster.policy;
+            maxHandles[i] = SysfsHandle.obtain(cluster.getPathFreqMax());
+            limits[i] = HwIoUtils.readInt(cluster.getPathCpuinfoFreqMax());
+            if (limits[i] <= 0) {
+                limits[i] = cluster.freqAvail.max();
+            }
+        }
+        if (hasGpu) {
+            final int i = count - 1;
+            domains[i] = ThrottleEvent.DOMAIN_GPU;
+            indices[i] = 0;
+            maxHandles[i] = SysfsHandle.obtain(gpuFreqMaxPath);
+            limits[i] = ((gpuFreqAvail != null) ? gpuFreqAvail.max() : Constants.INVALID);
+        }
+
+        this.thermalSampler = thermalSampler;
+        this.thermalReadings = thermalSampler.createReadings();
+    }
+
+    /**
+     * Rereads all max frequencies once and reports caps, which started or ended since the last check.
+     *
+     * @return The amount of reported events
+     */
+    @WorkerThread public synchronized int check(@NonNull ThrottleListener listener) {
+        final long now = SystemClock.elapsedRealtime();
+        boolean thermalSampled = false;
+        int events = 0;
+        for (int i = 0; i < domains.length; i++) {
+            final int max = maxHandles[i].readInt();
+            if (max <= 0) {
+                continue;
+            }
+            if (max > limits[i]) {
+                // unknown or too low limit, learn it
+                limits[i] = max;
+            }
+
+            final boolean isCapped = (max < limits[i]);
+            if (isCapped && !capped[i]) {
+                if (!thermalSampled) {
+                    thermalSampler.sample(thermalReadings);
+                    thermalSampled = true;
+                }
+                final int hottest = thermalReadings.getHottestZone();
+                capped[i] = true;
+                lowestCaps[i] = max;
+                startTimes[i] = now;
+                onsetZones[i] = ((hottest != -1) ? thermalReadings.zones.get(hottest) : null);
+                onsetTemperatures[i] = ((hottest != -1) ? thermalReadings.temperatures[hottest] : ThermalZones.INVALID_TEMPERATURE);
+                listener.onThrottleEvent(createEvent(ThrottleEvent.TYPE_START, i, max, 0));
+                events++;
+            } else if (isCapped) {
+                lowestCaps[i] = Math.min(lowestCaps[i], max);
+            } else if (capped[i]) {
+                capped[i] = false;
+                listener.onThrottleEvent(createEvent(ThrottleEvent.TYPE_END, i, lowestCaps[i], now - startTimes[i]));
+                events++;
+            }
+        }
+        return events;
+    }
+
+    @NonNull private ThrottleEvent createEvent(int type, int i, int cappedFrequency, long duration) {
+        final ThrottleEvent event = new ThrottleEvent(type, domains[i], indices[i], limits[i], cappedFrequency,
+                startTimes[i], duration, onsetZones[i], onsetTemperatures[i]);
+        if (Constants.DEBUG) {
+            Log.v(TAG, event.toString());
+        }
+        return event;
+    }
+
+    /**
+     * @return True if any domain is capped as of the last check
+     */
+    public synchronized boolean isThrottling() {
+        for (final boolean isCapped : capped) {
+            if (isCapped) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public ThrottleDetector start(@NonNull ThrottleListener listener, @NonNull Handler callbackHandler) {
+        return start(listener, callbackHandler, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Checks continuously on a background thread, the listener gets called on the given handler.
+     *
+     * @param interval The interval between checks, in milliseconds
+     */
+    public synchronized ThrottleDetector start(@NonNull ThrottleListener listener, @NonNull Handler callbackHandler,
+            int interval) {
+        this.listener = listener;
+        this.callbackHandler = callbackHandler;
+        this.interval = Math.max(1, interval);
+        if (detectorHandler == null) {
+            detectorThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+            detectorThread.start();
+            detectorHandler = new Handler(detectorThread.getLooper());
+        }
+        detectorHandler.removeCallbacks(mChecker);
+        detectorHandler.post(mChecker);
+        return this;
+    }
+
+    public synchronized void stop() {
+        listener = null;
+        if (detectorThread != null) {
+            detectorHandler.removeCallbacks(mChecker);
+            detectorThread.quit();
+            detectorThread = null;
+            detectorHandler = null;
+        }
+    }
+
+    private final Runnable mChecker = new Runnable() {
+        @Override public void run() {
+            final Handler handler;
+            synchronized (ThrottleDetector.this) {
+                if (listener == null) {
+                    return;
+                }
+                handler = detectorHandler;
+            }
+            check(mDispatcher);
+            if (handler != null) {
+                handler.postDelayed(this, interval);
+            }
+        }
+    };
+
+    private final ThrottleListener mDispatcher = new ThrottleListener() {
+        @Override public void onThrottleEvent(@NonNull final ThrottleEvent event) {
+            final ThrottleListener throttleListener = listener;
+            final Handler handler = callbackHandler;
+            if (throttleListener == null || handler == null) {
+                return;
+            }
+            handler.post(new Runnable() {
+                @Override public void run() {
+                    throttleListener.onThrottleEvent(event);
+                }
+            });
+        }
+    };
+}
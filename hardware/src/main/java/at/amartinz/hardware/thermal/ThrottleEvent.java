@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.thermal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import at.amartinz.hardware.Constants;
+
+/**
+ * The start or the end of a frequency cap, as reported by the {@link ThrottleDetector}.
+ */
+public class ThrottleEvent {
+    public static final int TYPE_START = 0;
+    public static final int TYPE_END = 1;
+
+    public static final int DOMAIN_CPU = 0;
+    public static final int DOMAIN_GPU = 1;
+
+    // one of the TYPE_* constants
+    public final int type;
+    // one of the DOMAIN_* constants
+    public final int domain;
+    // the cpufreq policy for the cpu, 0 for the gpu
+    public final int index;
+
+    // the highest frequency, the domain could run at without being capped
+    public final int maxFrequency;
+    // the cap when it started, the lowest cap while it lasted for the end
+    public final int cappedFrequency;
+
+    // elapsed realtime of the start, in milliseconds
+    public final long startTime;
+    // how long the cap lasted, in milliseconds, 0 for the start
+    public final long duration;
+
+    // the hottest zone when the cap started, null if no zone could be read
+    @Nullable public final ThermalZone hottestZone;
+    // the temperature of the hottest zone when the cap started, in millidegree Celsius,
+    // ThermalZones.INVALID_TEMPERATURE if no zone could be read
+    public final int hottestTemperature;
+
+    ThrottleEvent(int type, int domain, int index, int maxFrequency, int cappedFrequency, long startTime,
+            long duration, @Nullable ThermalZone hottestZone, int hottestTemperature) {
+        this.type = type;
+        this.domain = domain;
+        this.index = index;
+        this.maxFrequency = maxFrequency;
+        this.cappedFrequency = cappedFrequency;
+        this.startTime = startTime;
+        this.duration = duration;
+        this.hottestZone = hottestZone;
+        this.hottestTemperature = hottestTemperature;
+    }
+
+    public boolean isStart() {
+        return type == TYPE_START;
+    }
+
+    /**
+     * @return The cap relative to the max frequency, eg. 0.75 if capped to 75 percent
+     */
+    public float getCapLevel() {
+        if (maxFrequency <= 0) {
+            return Constants.INVALID;
+        }
+        return ((float) cappedFrequency) / maxFrequency;
+    }
+
+    @NonNull @Override public String toString() {
+        return String.format("%s %s%s: %s / %s (%.0f%%) for %sms | hottest: %s at %s", (isStart() ? "start" : "end"),
+                ((domain == DOMAIN_CPU) ? "cpu" : "gpu"), index, cappedFrequency, maxFrequency,
+                getCapLevel() * 100, duration, ((hottestZone != null) ? hottestZone.type : null), hottestTemperature);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.thermal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * A trip point of a {@link ThermalZone}, which makes the kernel act once the zone reaches its temperature.
+ */
+public class TripPoint {
+    public static final String TYPE_ACTIVE = "active";
+    public static final String TYPE_PASSIVE = "passive";
+    public static final String TYPE_HOT = "hot";
+    public static final String TYPE_CRITICAL = "critical";
+
+    public final int index;
+    // in millidegree Celsius
+    public final int temperature;
+    // in millidegree Celsius, ThermalZones.INVALID_TEMPERATURE if not exposed
+    public final int hysteresis;
+    // one of the TYPE_* constants or whatever the kernel reports, may be null
+    @Nullable public final String type;
+
+    public TripPoint(int index, int temperature, int hysteresis, @Nullable String type) {
+        this.index = index;
+        this.temperature = temperature;
+        this.hysteresis = hysteresis;
+        this.type = type;
+    }
+
+    /**
+     * @return True if the kernel throttles, instead of spinning up a fan or shutting down, at this trip point
+     */
+    public boolean isPassive() {
+        return TYPE_PASSIVE.equals(type);
+    }
+
+    @NonNull @Override public String toString() {
+        return String.format("trip%s: %s (%s%s)", index, temperature, type,
+                ((hysteresis != ThermalZones.INVALID_TEMPERATURE) ? ", hyst " + hysteresis : ""));
+    }
+}
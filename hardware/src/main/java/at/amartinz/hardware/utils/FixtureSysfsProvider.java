@@ -0,0 +1,56 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.utils;
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+
+/**
+ * A {@link SysfsProvider}, which resolves all paths relative to a directory.
+ * <p>
+ * Point it to a captured device tree, eg. a copy of /sys and /proc below /tmp/device, to run
+ * regression tests or throughput benchmarks of the readers on any machine.
+ * Root fallbacks are disabled, as they would read the real filesystem.
+ */
+public class FixtureSysfsProvider implements SysfsProvider {
+    private final File root;
+
+    public FixtureSysfsProvider(@NonNull File root) {
+        this.root = root;
+    }
+
+    @NonNull public File getRoot() {
+        return root;
+    }
+
+    @NonNull @Override public File getFile(@NonNull String path) {
+        return new File(root, path);
+    }
+
+    @Override public boolean supportsRoot() {
+        return false;
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.RandomAccess;
+
+import at.amartinz.hardware.Constants;
+
+/**
+ * An immutable, ascending table of frequency steps, backed by an int array.
+ * <p>
+ * Tables are interned, identical tables of different cores or clusters share one instance and can
+ * be compared by reference. It is a {@link java.util.List} for compatibility, prefer the primitive
+ * accessors like {@link #getFrequency(int)}, {@link #min()}, {@link #max()} and {@link #nearest(int)}
+ * to avoid boxing.
+ */
+public final class FrequencyTable extends AbstractList<Integer> implements RandomAccess {
+    // only ever grows by the amount of distinct tables of the device, which is a handful
+    private static final HashMap<FrequencyTable, FrequencyTable> sInterned = new HashMap<>();
+
+    public static final FrequencyTable EMPTY = intern(new FrequencyTable(new int[0]));
+
+    private final int[] frequencies;
+    private final int hashCode;
+
+    private FrequencyTable(@NonNull int[] frequencies) {
+        this.frequencies = frequencies;
+        this.hashCode = Arrays.hashCode(frequencies);
+    }
+
+    /**
+     * @param frequencies The frequencies in any order, duplicates and values below 0 get dropped
+     * @return The interned table
+     */
+    @NonNull public static FrequencyTable of(@Nullable int... frequencies) {
+        if (frequencies == null || frequencies.length == 0) {
+            return EMPTY;
+        }
+        return of(frequencies, frequencies.length);
+    }
+
+    @NonNull private static FrequencyTable of(@NonNull int[] frequencies, int count) {
+        final int[] sorted = Arrays.copyOf(frequencies, count);
+        Arrays.sort(sorted);
+
+        int size = 0;
+        for (final int frequency : sorted) {
+            if (frequency >= 0 && (size == 0 || sorted[size - 1] != frequency)) {
+                sorted[size++] = frequency;
+            }
+        }
+        if (size == 0) {
+            return EMPTY;
+        }
+        return intern(new FrequencyTable((size == sorted.length) ? sorted : Arrays.copyOf(sorted, size)));
+    }
+
+    /**
+     * Parses whitespace separated frequencies, eg. the content of scaling_available_frequencies.
+     * Tokens, which are no numbers, get skipped.
+     *
+     * @return The interned table, which is empty if there is nothing to parse
+     */
+    @NonNull public static FrequencyTable parse(@Nullable String frequencies) {
+        if (frequencies == null) {
+            return EMPTY;
+        }
+
+        int[] values = new int[16];
+        int count = 0;
+        final int length = frequencies.length();
+        int pos = 0;
+        while (pos < length) {
+            while (pos < length && Character.isWhitespace(frequencies.charAt(pos))) {
+                pos++;
+            }
+            final int start = pos;
+            long value = 0;
+            boolean valid = true;
+            while (pos < length && !Character.isWhitespace(frequencies.charAt(pos))) {
+                final int digit = frequencies.charAt(pos) - '0';
+                if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE) {
+                    valid = false;
+                } else {
+                    value = value * 10 + digit;
+                }
+                pos++;
+            }
+            if (pos == start || !valid || value > Integer.MAX_VALUE) {
+                continue;
+            }
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = (int) value;
+        }
+        return ((count == 0) ? EMPTY : of(values, count));
+    }
+
+    /**
+     * Reads the table from a sysfs node through its pooled handle, tokens which are no numbers
+     * get skipped like in {@link #parse(String)}.
+     *
+     * @return The interned table, which is empty if the node could not be read or parsed
+     */
+    @WorkerThread @NonNull public static FrequencyTable read(@Nullable String path) {
+        return parse(SysfsHandle.readString(path));
+    }
+
+    @NonNull private static FrequencyTable intern(@NonNull FrequencyTable table) {
+        synchronized (sInterned) {
+            final FrequencyTable interned = sInterned.get(table);
+            if (interned != null) {
+                return interned;
+            }
+            sInterned.put(table, table);
+            return table;
+        }
+    }
+
+    /**
+     * @return The frequency at the given index, without boxing
+     */
+    public int getFrequency(int index) {
+        return frequencies[index];
+    }
+
+    /**
+     * @return The lowest frequency or {@link Constants#INVALID} if the table is empty
+     */
+    public int min() {
+        return ((frequencies.length != 0) ? frequencies[0] : Constants.INVALID);
+    }
+
+    /**
+     * @return The highest frequency or {@link Constants#INVALID} if the table is empty
+     */
+    public int max() {
+        return ((frequencies.length != 0) ? frequencies[frequencies.length - 1] : Constants.INVALID);
+    }
+
+    /**
+     * @return The index of the given frequency or -1 if it is not a step of this table
+     */
+    public int indexOfFrequency(int frequency) {
+        final int index = Arrays.binarySearch(frequencies, frequency);
+        return ((index >= 0) ? index : -1);
+    }
+
+    /**
+     * @return The index of the step closest to the given frequency, the lower one on ties,
+     * or -1 if the table is empty
+     */
+    public int nearestIndex(int frequency) {
+        if (frequencies.length == 0) {
+            return -1;
+        }
+        final int index = Arrays.binarySearch(frequencies, frequency);
+        if (index >= 0) {
+            return index;
+        }
+        final int insertion = -(index + 1);
+        if (insertion == 0) {
+            return 0;
+        }
+        if (insertion == frequencies.length) {
+            return frequencies.length - 1;
+        }
+        final long below = (long) frequency - frequencies[insertion - 1];
+        final long above = (long) frequencies[insertion] - frequency;
+        return ((above < below) ? insertion : insertion - 1);
+    }
+
+    /**
+     * @return The step closest to the given frequency or {@link Constants#INVALID} if the table is empty
+     */
+    public int nearest(int frequency) {
+        final int index = nearestIndex(frequency);
+        return ((index != -1) ? frequencies[index] : Constants.INVALID);
+    }
+
+    /**
+     * @return A copy of the frequencies
+     */
+    @NonNull public int[] toIntArray() {
+        return frequencies.clone();
+    }
+
+    @Override public Integer get(int index) {
+        return frequencies[index];
+    }
+
+    @Override public int size() {
+        return frequencies.length;
+    }
+
+    @Override public boolean contains(Object o) {
+        return (o instanceof Integer) && indexOfFrequency((Integer) o) != -1;
+    }
+
+    @Override public int indexOf(Object o) {
+        return ((o instanceof Integer) ? indexOfFrequency((Integer) o) : -1);
+    }
+
+    @Override public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof FrequencyTable) {
+            final FrequencyTable other = (FrequencyTable) o;
+            return hashCode == other.hashCode && Arrays.equals(frequencies, other.frequencies);
+        }
+        return super.equals(o);
+    }
+
+    @Override public int hashCode() {
+        // same as List.hashCode() for the boxed values
+        return hashCode;
+    }
+}
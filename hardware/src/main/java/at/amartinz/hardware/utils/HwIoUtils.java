@@ -24,24 +24,36 @@
 
 package at.amartinz.hardware.utils;
 
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.os.Build;
 import android.support.annotation.ArrayRes;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.WorkerThread;
-import android.text.TextUtils;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
 import android.util.Log;
 
 import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.Socket;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import at.amartinz.hardware.Constants;
 import at.amartinz.execution.Command;
@@ -53,7 +65,13 @@ import hugo.weaving.DebugLog;
 public class HwIoUtils {
     private static final String TAG = HwIoUtils.class.getSimpleName();
 
-    private static final Random sRandom = new Random(System.nanoTime());
+    private static volatile SysfsProvider sSysfsProvider = RealSysfsProvider.INSTANCE;
+
+    // batches with more paths get split up and read in parallel
+    private static final int BATCH_PARALLEL_THRESHOLD = 16;
+    private static final int BATCH_MAX_THREADS = 3;
+
+    private static ThreadPoolExecutor sBatchExecutor;
 
     public static void closeQuietly(final Object o) {
         if (o instanceof Socket) {
@@ -71,44 +89,96 @@ public class HwIoUtils {
         void onFileRead(String path, String content);
     }
 
+    /**
+     * Sets the provider, which all file access goes through.
+     *
+     * @param sysfsProvider The provider to use or null to use the real filesystem
+     */
+    public static void setSysfsProvider(@Nullable SysfsProvider sysfsProvider) {
+        sSysfsProvider = (sysfsProvider != null ? sysfsProvider : RealSysfsProvider.INSTANCE);
+        // cached descriptors and resolutions belong to the previous provider
+        SysfsHandle.closeAll();
+        PathRegistry.onSysfsProviderChanged();
+    }
+
+    @NonNull public static SysfsProvider getSysfsProvider() {
+        return sSysfsProvider;
+    }
+
+    /**
+     * @param path An absolute device path
+     * @return The file backing the given path, according to the current {@link SysfsProvider}
+     */
+    @NonNull public static File getFile(@NonNull String path) {
+        return sSysfsProvider.getFile(path);
+    }
+
+    /**
+     * @return True if the current {@link SysfsProvider} allows root fallbacks and we have root
+     */
+    public static boolean isRootAvailable() {
+        return sSysfsProvider.supportsRoot() && RootCheck.isRooted();
+    }
+
     public static String getPath(@NonNull Context context, @ArrayRes int filePathResId) {
         return getPath(context, filePathResId, null);
     }
 
+    /**
+     * Resolves the first existing path of the given string array.
+     * Resolutions are cached and persisted by the {@link PathRegistry}.
+     *
+     * @return The existing path or an empty string if none exists
+     */
     public static String getPath(@NonNull Context context, @ArrayRes int filePathResId, @Nullable String prefix) {
-        final boolean hasPrefix = !TextUtils.isEmpty(prefix);
-        final String[] paths = context.getResources().getStringArray(filePathResId);
-
-        String basePath = null;
-        for (String path : paths) {
-            if (hasPrefix) {
-                path = prefix + path;
-            }
-            if (HwIoUtils.fileExists(path)) {
-                basePath = path;
-                break;
-            }
-        }
-        if (TextUtils.isEmpty(basePath)) {
-            return "";
-        }
-        return basePath;
+        return PathRegistry.resolve(context, filePathResId, prefix);
     }
 
     public static boolean canExecute(@Nullable String filePath) {
-        return !TextUtils.isEmpty(filePath) && new File(filePath).canExecute();
+        return !HwUtils.isEmpty(filePath) && getFile(filePath).canExecute();
     }
 
     public static boolean canRead(@Nullable String filePath) {
-        return !TextUtils.isEmpty(filePath) && new File(filePath).canRead();
+        return !HwUtils.isEmpty(filePath) && getFile(filePath).canRead();
     }
 
     public static boolean canWrite(@Nullable String filePath) {
-        return !TextUtils.isEmpty(filePath) && new File(filePath).canWrite();
+        return !HwUtils.isEmpty(filePath) && getFile(filePath).canWrite();
+    }
+
+    /**
+     * Checks the mode of the given file for any write permission. Nodes without one, like sysfs nodes
+     * which only report a value, can not be written by root either.
+     * <p>
+     * Below Lollipop the mode can not be read, the file counts as writable if it can be written
+     * directly or root is available.
+     *
+     * @return True if the file has a write permission or could not be checked
+     */
+    public static boolean hasWritePermission(@Nullable String filePath) {
+        if (HwUtils.isEmpty(filePath)) {
+            return false;
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return canWrite(filePath) || isRootAvailable();
+        }
+        return hasWritePermissionLollipop(getFile(filePath).getAbsolutePath());
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP) private static boolean hasWritePermissionLollipop(@NonNull String path) {
+        try {
+            final int writeMask = OsConstants.S_IWUSR | OsConstants.S_IWGRP | OsConstants.S_IWOTH;
+            return ((Os.stat(path).st_mode & writeMask) != 0);
+        } catch (ErrnoException ee) {
+            if (Constants.DEBUG) {
+                Log.w(TAG, String.format("could not stat %s", path), ee);
+            }
+            return true;
+        }
     }
 
     public static boolean fileExists(@Nullable String filePath) {
-        return !TextUtils.isEmpty(filePath) && new File(filePath.trim()).exists();
+        return !HwUtils.isEmpty(filePath) && getFile(filePath.trim()).exists();
     }
 
     public static boolean fileExists(@Nullable File file) {
@@ -141,7 +211,7 @@ public class HwIoUtils {
     }
 
     @NonNull public static List<String> listFiles(@NonNull String pathToDirectory) {
-        return listFiles(new File(pathToDirectory));
+        return listFiles(getFile(pathToDirectory));
     }
 
     @NonNull public static List<String> listFiles(@NonNull File directory) {
@@ -155,7 +225,7 @@ public class HwIoUtils {
             for (final File file : listedFiles) {
                 files.add(file.getName());
             }
-        } else if (withRootFallback) {
+        } else if (withRootFallback && isRootAvailable()) {
             final RootShell rootShell = ShellManager.get().getRootShell();
             if (rootShell == null) {
                 if (Constants.DEBUG) {
@@ -179,22 +249,84 @@ public class HwIoUtils {
         return files;
     }
 
+    /**
+     * @return The value or {@link Constants#INVALID} if it could not be read or parsed,
+     * use {@link #readInt(String)} if the node may report -1 as valid value
+     */
     @WorkerThread public static int readSysfsIntValue(final String path) {
-        final String rawString = HwIoUtils.readFile(path);
-        if (!TextUtils.isEmpty(rawString)) {
-            return HwUtils.tryParseInt(rawString);
-        }
-        return Constants.INVALID;
+        final int value = readInt(path);
+        return ((value != SysfsHandle.INVALID_INT) ? value : Constants.INVALID);
+    }
+
+    /**
+     * Reads and parses a sysfs node as int, without allocating on subsequent reads.
+     *
+     * @param path Path of the sysfs node to read
+     * @return The value or {@link SysfsHandle#INVALID_INT} if it could not be read or parsed
+     */
+    @WorkerThread public static int readInt(final String path) {
+        final SysfsHandle handle = SysfsHandle.obtain(path);
+        return ((handle != null) ? handle.readInt() : SysfsHandle.INVALID_INT);
+    }
+
+    /**
+     * Reads and parses a sysfs node as long, without allocating on subsequent reads.
+     *
+     * @param path Path of the sysfs node to read
+     * @return The value or {@link SysfsHandle#INVALID_LONG} if it could not be read or parsed
+     */
+    @WorkerThread public static long readLong(final String path) {
+        final SysfsHandle handle = SysfsHandle.obtain(path);
+        return ((handle != null) ? handle.readLong() : SysfsHandle.INVALID_LONG);
+    }
+
+    /**
+     * Reads and parses a sysfs node, containing whitespace separated numbers, into the given array.
+     *
+     * @param path Path of the sysfs node to read
+     * @param dst  The array to fill
+     * @return The amount of values, which might be bigger than the array,
+     * or {@link Constants#INVALID} if it could not be read or parsed
+     * @see SysfsHandle#readIntArray(int[])
+     */
+    @WorkerThread public static int readIntArray(final String path, @NonNull final int[] dst) {
+        final SysfsHandle handle = SysfsHandle.obtain(path);
+        return ((handle != null) ? handle.readIntArray(dst) : Constants.INVALID);
+    }
+
+    /**
+     * Reads and parses a sysfs node, containing whitespace separated numbers, into the given array.
+     *
+     * @param path Path of the sysfs node to read
+     * @param dst  The array to fill
+     * @return The amount of values, which might be bigger than the array,
+     * or {@link Constants#INVALID} if it could not be read or parsed
+     * @see SysfsHandle#readLongArray(long[])
+     */
+    @WorkerThread public static int readLongArray(final String path, @NonNull final long[] dst) {
+        final SysfsHandle handle = SysfsHandle.obtain(path);
+        return ((handle != null) ? handle.readLongArray(dst) : Constants.INVALID);
     }
 
     @WorkerThread public static String readSysfsStringValue(final String path) {
-        final String rawString = HwIoUtils.readFile(path);
-        if (!TextUtils.isEmpty(rawString)) {
+        final String rawString = HwIoUtils.readSysfsFile(path);
+        if (!HwUtils.isEmpty(rawString)) {
             return rawString.trim();
         }
         return Constants.INVALID_STR;
     }
 
+    /**
+     * Reads a sysfs node through a persistent {@link SysfsHandle}, which avoids reopening the file
+     * when the node gets polled.
+     *
+     * @param path Path of the sysfs node to read
+     * @return The trimmed content or null if it could not be read
+     */
+    @WorkerThread @Nullable public static String readSysfsFile(final String path) {
+        return SysfsHandle.readString(path);
+    }
+
     @WorkerThread @Nullable public static String[] readStringArray(final String path) {
         final String line = readOneLine(path);
         if (line != null) {
@@ -233,7 +365,7 @@ public class HwIoUtils {
     @WorkerThread
     @Nullable
     public static String readFileInternalRoot(@Nullable final String path, boolean oneLine) {
-        if (TextUtils.isEmpty(path) || !RootCheck.isRooted()) {
+        if (HwUtils.isEmpty(path) || !isRootAvailable()) {
             return null;
         }
         String output = null;
@@ -247,8 +379,136 @@ public class HwIoUtils {
         return output;
     }
 
+    /**
+     * Reads multiple files in one go.
+     * <p>
+     * Duplicate paths are only read once and all reads share one buffer.
+     * Long lists get split up and read in parallel on a small, bounded executor.
+     *
+     * @param paths Paths of the files to read
+     * @return A map of path to trimmed content, files which could not be read are not contained
+     */
+    @WorkerThread @NonNull public static Map<String, String> readFiles(@Nullable final String... paths) {
+        final String[] toRead = uniquePaths(paths);
+        final String[] contents = new String[toRead.length];
+        if (toRead.length <= BATCH_PARALLEL_THRESHOLD) {
+            new BatchReader(toRead, contents, 0, toRead.length, null).run();
+        } else {
+            final int chunks = BATCH_MAX_THREADS + 1;
+            final int chunkSize = (toRead.length + chunks - 1) / chunks;
+            final CountDownLatch latch = new CountDownLatch(chunks - 1);
+            final ThreadPoolExecutor executor = getBatchExecutor();
+            for (int i = 1; i < chunks; i++) {
+                final int start = Math.min(i * chunkSize, toRead.length);
+                final int end = Math.min(start + chunkSize, toRead.length);
+                executor.execute(new BatchReader(toRead, contents, start, end, latch));
+            }
+            // the calling thread takes care of the first chunk
+            new BatchReader(toRead, contents, 0, Math.min(chunkSize, toRead.length), null).run();
+            // the workers write into contents, so wait for them even if interrupted
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    latch.await();
+                    break;
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        final HashMap<String, String> result = new HashMap<>(toRead.length * 2);
+        for (int i = 0; i < toRead.length; i++) {
+            if (contents[i] != null) {
+                result.put(toRead[i], contents[i]);
+            }
+        }
+        return result;
+    }
+
+    private static synchronized ThreadPoolExecutor getBatchExecutor() {
+        if (sBatchExecutor == null) {
+            sBatchExecutor = new ThreadPoolExecutor(BATCH_MAX_THREADS, BATCH_MAX_THREADS, 5, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override public Thread newThread(@NonNull Runnable r) {
+                    final Thread thread = new Thread(r, "HwIoUtils-batch");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            sBatchExecutor.allowCoreThreadTimeOut(true);
+        }
+        return sBatchExecutor;
+    }
+
+    private static class BatchReader implements Runnable {
+        private final String[] paths;
+        private final String[] contents;
+        private final int start;
+        private final int end;
+        @Nullable private final CountDownLatch latch;
+
+        private byte[] buffer = new byte[4096];
+
+        BatchReader(String[] paths, String[] contents, int start, int end, @Nullable CountDownLatch latch) {
+            this.paths = paths;
+            this.contents = contents;
+            this.start = start;
+            this.end = end;
+            this.latch = latch;
+        }
+
+        @Override public void run() {
+            try {
+                for (int i = start; i < end; i++) {
+                    contents[i] = read(paths[i]);
+                }
+            } finally {
+                if (latch != null) {
+                    latch.countDown();
+                }
+            }
+        }
+
+        @Nullable private String read(final String path) {
+            final File f = getFile(path);
+            if (!f.canRead()) {
+                if (Constants.DEBUG) {
+                    Log.w(TAG, String.format("Can not read file, because it is not readable -> %s", path));
+                }
+                return null;
+            }
+
+            FileInputStream inputStream = null;
+            try {
+                inputStream = new FileInputStream(f);
+                int length = 0;
+                int read;
+                while ((read = inputStream.read(buffer, length, buffer.length - length)) > 0) {
+                    length += read;
+                    if (length == buffer.length) {
+                        final byte[] grown = new byte[buffer.length * 2];
+                        System.arraycopy(buffer, 0, grown, 0, length);
+                        buffer = grown;
+                    }
+                }
+                return new String(buffer, 0, length).trim();
+            } catch (IOException ioe) {
+                if (Constants.DEBUG) {
+                    Log.e(TAG, String.format("Could not read file -> %s", path), ioe);
+                }
+            } finally {
+                closeQuietly(inputStream);
+            }
+            return null;
+        }
+    }
+
     @WorkerThread @Nullable private static String readFileInternal(final String path, final boolean oneLine) {
-        final File f = new File(path);
+        final File f = getFile(path);
         if (f.canRead()) {
             FileReader fileReader = null;
             BufferedReader bufferedReader = null;
@@ -280,7 +540,7 @@ public class HwIoUtils {
 
     @WorkerThread
     @Nullable public static Command readFileRoot(@Nullable final String path, @Nullable final ReadFileListener readFileListener) {
-        if (TextUtils.isEmpty(path) || readFileListener == null || !RootCheck.isRooted()) {
+        if (HwUtils.isEmpty(path) || readFileListener == null || !isRootAvailable()) {
             return null;
         }
 
@@ -306,12 +566,84 @@ public class HwIoUtils {
         return null;
     }
 
+    /**
+     * Reads multiple files with root permissions within a single root shell command.
+     * <p>
+     * The listener gets called once per unique path after the command completed,
+     * files which could not be read are reported with empty content.
+     *
+     * @param paths            Paths of the files to read
+     * @param readFileListener The listener to report the content to
+     * @return The queued command or null if the files can not be read with root
+     */
+    @WorkerThread
+    @Nullable public static Command readFilesRoot(@Nullable final String[] paths, @Nullable final ReadFileListener readFileListener) {
+        if (readFileListener == null) {
+            return null;
+        }
+        return queueRootBatchRead(paths, readFileListener);
+    }
+
+    /**
+     * Reads multiple files with root permissions within a single root shell command and blocks until done.
+     *
+     * @param paths Paths of the files to read
+     * @return A map of path to trimmed content, files which could not be read are not contained
+     */
+    @WorkerThread @NonNull public static Map<String, String> readFilesRootBlocking(@Nullable final String... paths) {
+        final RootBatchReadCommand cmd = queueRootBatchRead(paths, null);
+        if (cmd == null) {
+            return new HashMap<>();
+        }
+        cmd.waitFor();
+        return cmd.getContents();
+    }
+
+    @Nullable private static RootBatchReadCommand queueRootBatchRead(@Nullable final String[] paths,
+            @Nullable final ReadFileListener readFileListener) {
+        final String[] toRead = uniquePaths(paths);
+        if (toRead.length == 0 || !isRootAvailable()) {
+            return null;
+        }
+
+        final RootShell rootShell = ShellManager.get().getRootShell();
+        if (rootShell == null) {
+            if (Constants.DEBUG) {
+                Log.w(TAG, "could not obtain root shell");
+            }
+            return null;
+        }
+
+        final RootBatchReadCommand cmd = RootBatchReadCommand.create(toRead, readFileListener);
+        rootShell.add(cmd);
+        return cmd;
+    }
+
+    @NonNull private static String[] uniquePaths(@Nullable final String[] paths) {
+        final LinkedHashSet<String> uniquePaths = new LinkedHashSet<>();
+        if (paths != null) {
+            for (final String path : paths) {
+                if (!HwUtils.isEmpty(path)) {
+                    uniquePaths.add(path);
+                }
+            }
+        }
+        return uniquePaths.toArray(new String[uniquePaths.size()]);
+    }
+
+    /**
+     * Quotes the given argument for usage within a shell command.
+     */
+    @NonNull static String shellQuote(@NonNull final String argument) {
+        return "'" + argument.replace("'", "'\\''") + "'";
+    }
+
     @WorkerThread public static boolean writeToFile(@NonNull String path, @NonNull String content) {
         return writeToFile(path, content, true);
     }
 
     @WorkerThread public static boolean writeToFile(@NonNull String path, @NonNull String content, boolean useRootAsFallback) {
-        return writeToFile(new File(path), content, useRootAsFallback);
+        return writeToFile(getFile(path), content, useRootAsFallback);
     }
 
     @WorkerThread public static boolean writeToFile(@NonNull File file, @NonNull String content) {
@@ -319,29 +651,17 @@ public class HwIoUtils {
     }
 
     @WorkerThread public static boolean writeToFile(@NonNull File file, @NonNull String content, boolean useRootAsFallback) {
-        final boolean useRoot = useRootAsFallback && (!file.canWrite() && RootCheck.isRooted());
+        final boolean useRoot = useRootAsFallback && (!file.canWrite() && isRootAvailable());
         if (useRoot) {
             if (Constants.DEBUG) {
                 Log.v(TAG, String.format("writing to %s as root", file.getAbsolutePath()));
             }
-            final RootShell rootShell = ShellManager.get().getRootShell();
-            if (rootShell == null) {
-                if (Constants.DEBUG) {
-                    Log.w(TAG, "could not obtain root shell!");
-                }
-                return false;
-            }
-
-            final int id = sRandom.nextInt(10000);
-            final String cmd = String.format("echo \'%s\' > %s", content, file.getAbsolutePath());
-            final Command writeCommand = new Command(id, cmd);
-            rootShell.add(writeCommand);
-
-            final int exitCode = writeCommand.waitFor().getExitCode();
+            // goes through the write queue, which merges it with other pending root writes
+            final boolean success = RootWriteQueue.get().writeBlocking(file.getAbsolutePath(), content);
             if (Constants.DEBUG) {
-                Log.v(TAG, String.format("write command \"%s\" ended with exit code -> %s", id, exitCode));
+                Log.v(TAG, String.format("write to %s as root succeeded -> %s", file.getAbsolutePath(), success));
             }
-            return (exitCode == 0);
+            return success;
         } else {
             if (Constants.DEBUG) {
                 Log.v(TAG, String.format("writing to %s", file.getAbsolutePath()));
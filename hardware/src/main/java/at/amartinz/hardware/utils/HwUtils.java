@@ -25,7 +25,6 @@
 package at.amartinz.hardware.utils;
 
 import android.support.annotation.Nullable;
-import android.text.TextUtils;
 import android.text.format.DateFormat;
 import android.util.Log;
 
@@ -43,6 +42,14 @@ public class HwUtils {
 
     private HwUtils() { }
 
+    /**
+     * Same as {@link android.text.TextUtils#isEmpty(CharSequence)}, but usable on a plain jvm,
+     * eg. when reading a captured tree through {@link FixtureSysfsProvider} in unit tests.
+     */
+    public static boolean isEmpty(@Nullable CharSequence str) {
+        return (str == null || str.length() == 0);
+    }
+
     public static int tryParseInt(final String toParse) {
         return tryParseInt(toParse, Constants.INVALID);
     }
@@ -59,7 +66,7 @@ public class HwUtils {
         if (toParse != null) {
             toParse = toParse.trim();
         }
-        if (TextUtils.isEmpty(toParse)) {
+        if (isEmpty(toParse)) {
             return null;
         }
         try {
@@ -84,7 +91,7 @@ public class HwUtils {
         if (toParse != null) {
             toParse = toParse.trim();
         }
-        if (TextUtils.isEmpty(toParse)) {
+        if (isEmpty(toParse)) {
             return null;
         }
         try {
@@ -122,7 +129,7 @@ public class HwUtils {
     }
 
     public static List<String> stringToList(@Nullable String arrayString) {
-        if (TextUtils.isEmpty(arrayString)) {
+        if (isEmpty(arrayString)) {
             return Collections.emptyList();
         }
         final String[] splitted = arrayString.trim().split(" ");
@@ -132,7 +139,7 @@ public class HwUtils {
     }
 
     public static List<Integer> stringToListInteger(@Nullable String arrayString) {
-        if (TextUtils.isEmpty(arrayString)) {
+        if (isEmpty(arrayString)) {
             return Collections.emptyList();
         }
         final ArrayList<Integer> list = new ArrayList<>();
@@ -0,0 +1,309 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.utils;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.support.annotation.ArrayRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import at.amartinz.hardware.Constants;
+
+/**
+ * Resolves lists of candidate paths, like the hardware_* arrays of hardware_file_list.xml, to the
+ * path which exists on this device.
+ * <p>
+ * Every list gets probed only once, negative results included. The resolutions are persisted per
+ * build fingerprint, so following process starts do not need to probe at all. Only the resource
+ * arrays go through the registry, single probes should check the path directly.
+ * <p>
+ * Nothing gets loaded or persisted while a {@link SysfsProvider} other than the real one is set,
+ * the persisted resolutions get loaded by the first resolution after the real one got restored.
+ */
+public class PathRegistry {
+    private static final String TAG = PathRegistry.class.getSimpleName();
+
+    private static final String CACHE_FILE_NAME = "hardware_path_registry.properties";
+    private static final String KEY_FINGERPRINT = "fingerprint";
+
+    private static final String NOT_FOUND = "";
+    private static final String NOT_FOUND_INDEX = "-1";
+
+    // persisted resolutions, keyed by the content of the candidate list
+    private static final ConcurrentHashMap<String, String> sResolved = new ConcurrentHashMap<>();
+    // fast path for resource arrays within this process, keyed by resource id and prefix
+    private static final ConcurrentHashMap<String, String> sResourceCache = new ConcurrentHashMap<>();
+
+    private static File sCacheFile;
+    private static boolean sLoaded;
+    private static boolean sSaveScheduled;
+
+    private PathRegistry() { }
+
+    /**
+     * Loads the persisted resolutions, if they belong to the current build.
+     * Gets called implicitly by every method which takes a {@link Context}.
+     */
+    public static void init(@NonNull Context context) {
+        synchronized (PathRegistry.class) {
+            if (sCacheFile == null) {
+                final Context appContext = context.getApplicationContext();
+                sCacheFile = new File((appContext != null ? appContext : context).getCacheDir(), CACHE_FILE_NAME);
+            }
+            if (sLoaded || getCacheFile() == null) {
+                // already loaded or a fake sysfs is in use, retried on the next call
+                return;
+            }
+            sLoaded = true;
+        }
+        load();
+    }
+
+    /**
+     * @param context       The context
+     * @param filePathResId The resource id of the string array, containing the candidates
+     * @param prefix        An optional prefix for every candidate
+     * @return The first existing candidate (including the prefix) or an empty string if none exists
+     */
+    @NonNull public static String resolve(@NonNull Context context, @ArrayRes int filePathResId, @Nullable String prefix) {
+        final String resourceKey = filePathResId + "|" + (prefix != null ? prefix : "");
+        final String cached = sResourceCache.get(resourceKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        init(context);
+        final String[] paths = context.getResources().getStringArray(filePathResId);
+        final String resolved = resolve(paths, prefix);
+        final String result = (resolved != null ? resolved : NOT_FOUND);
+        sResourceCache.put(resourceKey, result);
+        return result;
+    }
+
+    /**
+     * @param paths  The candidates
+     * @param prefix An optional prefix for every candidate
+     * @return The first existing candidate (including the prefix) or null if none exists
+     */
+    @Nullable private static String resolve(@Nullable String[] paths, @Nullable String prefix) {
+        if (paths == null || paths.length == 0) {
+            return null;
+        }
+
+        final String key = buildKey("p", paths, prefix);
+        String result = sResolved.get(key);
+        if (result == null) {
+            result = NOT_FOUND;
+            final boolean hasPrefix = !TextUtils.isEmpty(prefix);
+            for (final String path : paths) {
+                final String candidate = (hasPrefix ? prefix + path : path);
+                if (HwIoUtils.fileExists(candidate)) {
+                    result = candidate;
+                    break;
+                }
+            }
+            store(key, result);
+        }
+        return (NOT_FOUND.equals(result) ? null : result);
+    }
+
+    /**
+     * Resolves the index of the first entry of the given string array, which has an existing path.
+     * Entries may contain multiple, comma separated, paths and match if any of them exists.
+     *
+     * @return The index of the matching entry or -1 if none matches
+     */
+    public static int resolveIndex(@NonNull Context context, @ArrayRes int filePathResId) {
+        final String resourceKey = "i" + filePathResId;
+        final String cached = sResourceCache.get(resourceKey);
+        if (cached != null) {
+            return HwUtils.tryParseInt(cached, -1);
+        }
+
+        init(context);
+        final String[] entries = context.getResources().getStringArray(filePathResId);
+        final String key = buildKey("i", entries, null);
+        String result = sResolved.get(key);
+        if (result == null) {
+            result = NOT_FOUND_INDEX;
+            for (int i = 0; i < entries.length && NOT_FOUND_INDEX.equals(result); i++) {
+                for (final String path : entries[i].split(",")) {
+                    if (HwIoUtils.fileExists(path)) {
+                        result = String.valueOf(i);
+                        break;
+                    }
+                }
+            }
+            store(key, result);
+        }
+        sResourceCache.put(resourceKey, result);
+        return HwUtils.tryParseInt(result, -1);
+    }
+
+    /**
+     * Drops all resolutions, in memory and persisted.
+     */
+    public static void invalidate() {
+        sResourceCache.clear();
+        sResolved.clear();
+        scheduleSave();
+    }
+
+    /**
+     * Drops the resolutions in memory, without persisting, as they belong to the previous provider.
+     * The persisted ones get loaded again by the next resolution under the real provider.
+     */
+    static void onSysfsProviderChanged() {
+        synchronized (PathRegistry.class) {
+            sLoaded = false;
+        }
+        sResourceCache.clear();
+        sResolved.clear();
+    }
+
+    @NonNull private static String buildKey(@NonNull String type, @NonNull String[] paths, @Nullable String prefix) {
+        final StringBuilder sb = new StringBuilder(type).append('|');
+        if (prefix != null) {
+            sb.append(prefix);
+        }
+        for (final String path : paths) {
+            sb.append('|').append(path);
+        }
+        return sb.toString();
+    }
+
+    private static void store(@NonNull String key, @NonNull String result) {
+        if (sResolved.putIfAbsent(key, result) == null) {
+            scheduleSave();
+        }
+    }
+
+    private static void load() {
+        final File cacheFile = getCacheFile();
+        if (cacheFile == null || !cacheFile.exists()) {
+            return;
+        }
+
+        final Properties properties = new Properties();
+        FileInputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(cacheFile);
+            properties.load(inputStream);
+        } catch (IOException ioe) {
+            if (Constants.DEBUG) {
+                Log.e(TAG, "Could not load path registry", ioe);
+            }
+            return;
+        } finally {
+            HwIoUtils.closeQuietly(inputStream);
+        }
+
+        if (!TextUtils.equals(Build.FINGERPRINT, properties.getProperty(KEY_FINGERPRINT))) {
+            if (Constants.DEBUG) {
+                Log.i(TAG, "Build changed, probing paths again");
+            }
+            return;
+        }
+        for (final String key : properties.stringPropertyNames()) {
+            if (!KEY_FINGERPRINT.equals(key)) {
+                sResolved.putIfAbsent(key, properties.getProperty(key));
+            }
+        }
+    }
+
+    /**
+     * @return The cache file or null if the registry is not initialized or a fake sysfs is in use,
+     * whose resolutions must not end up on disk
+     */
+    @Nullable private static synchronized File getCacheFile() {
+        if (HwIoUtils.getSysfsProvider() != RealSysfsProvider.INSTANCE) {
+            return null;
+        }
+        return sCacheFile;
+    }
+
+    private static void scheduleSave() {
+        if (getCacheFile() == null) {
+            return;
+        }
+        synchronized (PathRegistry.class) {
+            if (sSaveScheduled) {
+                return;
+            }
+            sSaveScheduled = true;
+        }
+        // batch all resolutions of a cold start into one write
+        AsyncTask.execute(new Runnable() {
+            @Override public void run() {
+                synchronized (PathRegistry.class) {
+                    sSaveScheduled = false;
+                }
+                save();
+            }
+        });
+    }
+
+    private static void save() {
+        final File cacheFile = getCacheFile();
+        if (cacheFile == null) {
+            return;
+        }
+
+        final Properties properties = new Properties();
+        for (final Map.Entry<String, String> entry : sResolved.entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue());
+        }
+        properties.setProperty(KEY_FINGERPRINT, (Build.FINGERPRINT != null ? Build.FINGERPRINT : ""));
+
+        final File tmpFile = new File(cacheFile.getAbsolutePath() + ".tmp");
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(tmpFile);
+            properties.store(outputStream, null);
+        } catch (IOException ioe) {
+            if (Constants.DEBUG) {
+                Log.e(TAG, "Could not save path registry", ioe);
+            }
+            return;
+        } finally {
+            HwIoUtils.closeQuietly(outputStream);
+        }
+        if (!tmpFile.renameTo(cacheFile) && Constants.DEBUG) {
+            Log.w(TAG, "Could not replace path registry");
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the completion of asynchronous reads per path and allows waiting for them without spinning.
+ * <p>
+ * Callbacks should apply their result while holding the lock of this object and only if the path
+ * {@link #isPending(String) is still pending}, which guarantees that no late result gets applied
+ * after the waiting side gave up and {@link #cancel() cancelled}.
+ */
+public class PendingReads {
+    public static final long DEFAULT_TIMEOUT = 10000;
+
+    private final HashSet<String> pending = new HashSet<>();
+    private final CountDownLatch latch = new CountDownLatch(1);
+
+    private boolean cancelled;
+
+    public PendingReads(@Nullable Collection<String> paths) {
+        if (paths != null) {
+            pending.addAll(paths);
+        }
+        if (pending.isEmpty()) {
+            latch.countDown();
+        }
+    }
+
+    public synchronized boolean isPending(@Nullable String path) {
+        return !cancelled && pending.contains(path);
+    }
+
+    /**
+     * Marks the read of the given path as completed.
+     *
+     * @return True if the path was pending, false otherwise
+     */
+    public synchronized boolean complete(@Nullable String path) {
+        if (cancelled || !pending.remove(path)) {
+            return false;
+        }
+        if (pending.isEmpty()) {
+            latch.countDown();
+        }
+        return true;
+    }
+
+    /**
+     * Stops tracking, all pending paths stay incomplete and waiting threads get released.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        latch.countDown();
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    public synchronized boolean isDone() {
+        return cancelled || pending.isEmpty();
+    }
+
+    @NonNull public synchronized Set<String> getPending() {
+        return new HashSet<>(pending);
+    }
+
+    /**
+     * Blocks until all reads completed, the reads got cancelled or the timeout elapsed.
+     *
+     * @return True if all reads completed, false otherwise
+     */
+    @WorkerThread public boolean await(long timeout, @NonNull TimeUnit unit) {
+        try {
+            latch.await(timeout, unit);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            return !cancelled && pending.isEmpty();
+        }
+    }
+}
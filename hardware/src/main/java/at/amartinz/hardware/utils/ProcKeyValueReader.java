@@ -0,0 +1,328 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import at.amartinz.hardware.Constants;
+
+/**
+ * Streams "key: value" files, like /proc/meminfo or /proc/cpuinfo, through a reused buffer and
+ * stops reading as soon as all registered keys got found.
+ * <p>
+ * Keys get compared byte by byte, values get copied into reused per key storage. Strings only get
+ * created on {@link #getString(int)}, numbers get parsed while reading.
+ * A key may list alternative names, separated by '|', of which the first occurring one gets used.
+ * Keys, which are marked via {@link #setLastOccurrenceWins(int...)}, take the value of their last
+ * occurrence instead, which requires reading the whole file.
+ * <pre>
+ * final ProcKeyValueReader reader = new ProcKeyValueReader("/proc/meminfo", "MemTotal", "MemFree");
+ * if (reader.read()) {
+ *     final long total = reader.getLong(0);
+ * }
+ * </pre>
+ * Instances are meant to be kept and reused, wrap {@link #read()} and the getters into a block
+ * synchronized on the reader if it is shared between threads.
+ */
+public class ProcKeyValueReader {
+    private static final String TAG = ProcKeyValueReader.class.getSimpleName();
+
+    // covers the interesting head of /proc/meminfo with a single read
+    private static final int BUFFER_SIZE = 1024;
+
+    private final String path;
+    private final byte[][][] keys;
+
+    private final byte[][] values;
+    private final int[] valueLengths;
+    private final long[] longValues;
+    private final boolean[] found;
+    private int foundCount;
+
+    private final boolean[] lastWins;
+    private boolean anyLastWins;
+
+    private byte[] buffer = new byte[BUFFER_SIZE];
+
+    /**
+     * @param path The path of the file
+     * @param keys The keys to look for, without the separating colon, eg. "Processor|model name"
+     */
+    public ProcKeyValueReader(@NonNull String path, @NonNull String... keys) {
+        this.path = path;
+        this.keys = new byte[keys.length][][];
+        for (int i = 0; i < keys.length; i++) {
+            final String[] names = keys[i].split("\\|");
+            this.keys[i] = new byte[names.length][];
+            for (int j = 0; j < names.length; j++) {
+                this.keys[i][j] = names[j].getBytes();
+            }
+        }
+        this.values = new byte[keys.length][];
+        this.valueLengths = new int[keys.length];
+        this.longValues = new long[keys.length];
+        this.found = new boolean[keys.length];
+        this.lastWins = new boolean[keys.length];
+    }
+
+    /**
+     * @param indices The indices of the keys, as passed to the constructor, which should take the
+     *                value of their last occurrence, eg. per core entries of /proc/cpuinfo
+     * @return This reader
+     */
+    @NonNull public synchronized ProcKeyValueReader setLastOccurrenceWins(int... indices) {
+        for (final int index : indices) {
+            lastWins[index] = true;
+            anyLastWins = true;
+        }
+        return this;
+    }
+
+    @NonNull public String getPath() {
+        return path;
+    }
+
+    /**
+     * Reads the file until all keys are found or the end of the file is reached.
+     *
+     * @return True if the file could be read, false otherwise
+     */
+    @WorkerThread public synchronized boolean read() {
+        reset();
+
+        final File f = HwIoUtils.getFile(path);
+        if (!f.canRead()) {
+            if (Constants.DEBUG) {
+                Log.w(TAG, String.format("Can not read file, because it is not readable -> %s", path));
+            }
+            return false;
+        }
+
+        FileInputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(f);
+            int start = 0;
+            int end = 0;
+            int read;
+            while ((read = inputStream.read(buffer, end, buffer.length - end)) > 0) {
+                final int scanFrom = end;
+                end += read;
+                for (int i = scanFrom; i < end; i++) {
+                    if (buffer[i] == '\n') {
+                        parseLine(buffer, start, i);
+                        start = i + 1;
+                        if (canStop()) {
+                            return true;
+                        }
+                    }
+                }
+
+                if (start > 0) {
+                    // move the incomplete line to the front
+                    end -= start;
+                    System.arraycopy(buffer, start, buffer, 0, end);
+                    start = 0;
+                } else if (end == buffer.length) {
+                    // line longer than the buffer, grow once and keep the bigger buffer
+                    final byte[] grown = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, end);
+                    buffer = grown;
+                }
+            }
+            // last line without trailing new line
+            if (end > start) {
+                parseLine(buffer, start, end);
+            }
+            return true;
+        } catch (IOException ioe) {
+            if (Constants.DEBUG) {
+                Log.e(TAG, String.format("Could not read file -> %s", path), ioe);
+            }
+        } finally {
+            HwIoUtils.closeQuietly(inputStream);
+        }
+        return false;
+    }
+
+    /**
+     * Parses already read content, eg. the output of a root shell command.
+     */
+    public synchronized void parse(@Nullable String content) {
+        reset();
+        if (content == null) {
+            return;
+        }
+
+        final byte[] data = content.getBytes();
+        int start = 0;
+        for (int i = 0; i < data.length && !canStop(); i++) {
+            if (data[i] == '\n') {
+                parseLine(data, start, i);
+                start = i + 1;
+            }
+        }
+        if (!canStop() && data.length > start) {
+            parseLine(data, start, data.length);
+        }
+    }
+
+    /**
+     * @return True if all keys got found by the last read
+     */
+    public synchronized boolean isComplete() {
+        return foundCount == keys.length;
+    }
+
+    private boolean canStop() {
+        // a later line might still override a value
+        return !anyLastWins && isComplete();
+    }
+
+    /**
+     * @param index The index of the key, as passed to the constructor
+     * @return True if the key got found by the last read
+     */
+    public synchronized boolean has(int index) {
+        return found[index];
+    }
+
+    /**
+     * @param index The index of the key, as passed to the constructor
+     * @return The leading number of the value, eg. 1024 for "1024 kB", or {@link Constants#INVALID}
+     * if the key was not found or its value does not start with a number
+     */
+    public synchronized long getLong(int index) {
+        return (found[index] ? longValues[index] : Constants.INVALID);
+    }
+
+    /**
+     * @param index The index of the key, as passed to the constructor
+     * @return The trimmed value or null if the key was not found
+     */
+    @Nullable public synchronized String getString(int index) {
+        return (found[index] ? new String(values[index], 0, valueLengths[index]) : null);
+    }
+
+    private void reset() {
+        for (int i = 0; i < found.length; i++) {
+            found[i] = false;
+        }
+        foundCount = 0;
+    }
+
+    private void parseLine(final byte[] data, final int start, final int end) {
+        int colon = start;
+        while (colon < end && data[colon] != ':') {
+            colon++;
+        }
+        if (colon == end) {
+            return;
+        }
+
+        // keys may be padded with tabs, eg. "Processor\t: ARMv7"
+        int keyEnd = colon;
+        while (keyEnd > start && data[keyEnd - 1] <= ' ') {
+            keyEnd--;
+        }
+
+        final int index = findKey(data, start, keyEnd);
+        if (index == -1) {
+            return;
+        }
+
+        int valueStart = colon + 1;
+        int valueEnd = end;
+        while (valueStart < valueEnd && data[valueStart] <= ' ') {
+            valueStart++;
+        }
+        while (valueEnd > valueStart && data[valueEnd - 1] <= ' ') {
+            valueEnd--;
+        }
+
+        final int length = valueEnd - valueStart;
+        if (values[index] == null || values[index].length < length) {
+            values[index] = new byte[Math.max(length, 32)];
+        }
+        System.arraycopy(data, valueStart, values[index], 0, length);
+        valueLengths[index] = length;
+        longValues[index] = parseLeadingLong(data, valueStart, valueEnd);
+
+        if (!found[index]) {
+            found[index] = true;
+            foundCount++;
+        }
+    }
+
+    private int findKey(final byte[] data, final int start, final int end) {
+        final int length = end - start;
+        for (int i = 0; i < keys.length; i++) {
+            // first occurrence wins, unless configured otherwise
+            if (found[i] && !lastWins[i]) {
+                continue;
+            }
+            for (final byte[] key : keys[i]) {
+                if (key.length != length) {
+                    continue;
+                }
+                int j = 0;
+                while (j < length && key[j] == data[start + j]) {
+                    j++;
+                }
+                if (j == length) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static long parseLeadingLong(final byte[] data, final int start, final int end) {
+        long value = 0;
+        int pos = start;
+        while (pos < end) {
+            final int digit = data[pos] - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            if (value > (Long.MAX_VALUE - digit) / 10) {
+                return Constants.INVALID;
+            }
+            value = value * 10 + digit;
+            pos++;
+        }
+        // the number has to be followed by whitespace or the end, eg. "1024 kB"
+        if (pos == start || (pos < end && data[pos] > ' ')) {
+            return Constants.INVALID;
+        }
+        return value;
+    }
+}
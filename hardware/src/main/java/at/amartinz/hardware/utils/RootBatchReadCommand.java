@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import at.amartinz.execution.Command;
+
+/**
+ * Reads multiple files within one root shell command.
+ * <p>
+ * Every file gets framed by a marker line, containing a random token and the index of the file,
+ * which allows splitting the combined output back up per file.
+ * <pre>
+ * echo "token:0"; cat 'path0' 2&gt;/dev/null || echo "token:-"; echo;
+ * echo "token:1"; cat 'path1' 2&gt;/dev/null || echo "token:-"; echo;
+ * </pre>
+ */
+class RootBatchReadCommand extends Command {
+    private static final Random sRandom = new Random(System.nanoTime());
+
+    private final String[] paths;
+    private final String marker;
+    private final String failedMarker;
+    @Nullable private final HwIoUtils.ReadFileListener listener;
+
+    private final StringBuilder[] contents;
+    private final boolean[] failed;
+    private int current = -1;
+
+    private RootBatchReadCommand(@NonNull String[] paths, @NonNull String token,
+            @Nullable HwIoUtils.ReadFileListener listener) {
+        super(buildCommand(paths, token));
+        this.paths = paths;
+        this.marker = token + ':';
+        this.failedMarker = token + ":-";
+        this.listener = listener;
+        this.contents = new StringBuilder[paths.length];
+        this.failed = new boolean[paths.length];
+    }
+
+    @NonNull static RootBatchReadCommand create(@NonNull String[] paths, @Nullable HwIoUtils.ReadFileListener listener) {
+        final String token = "hwbatch" + Long.toHexString(sRandom.nextLong());
+        return new RootBatchReadCommand(paths, token, listener);
+    }
+
+    @NonNull private static String buildCommand(@NonNull String[] paths, @NonNull String token) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < paths.length; i++) {
+            sb.append("echo \"").append(token).append(':').append(i).append("\"; ");
+            sb.append("cat ").append(HwIoUtils.shellQuote(paths[i])).append(" 2>/dev/null");
+            sb.append(" || echo \"").append(token).append(":-\"; ");
+            // terminate files without trailing new line, so the next marker starts on its own line
+            sb.append("echo;\n");
+        }
+        return sb.toString();
+    }
+
+    @Override public void onCommandOutput(int id, String line) {
+        super.onCommandOutput(id, line);
+        if (line == null) {
+            return;
+        }
+
+        if (line.startsWith(marker)) {
+            if (line.equals(failedMarker)) {
+                if (current >= 0) {
+                    failed[current] = true;
+                }
+                return;
+            }
+            final int index = HwUtils.tryParseInt(line.substring(marker.length()));
+            if (index >= 0 && index < paths.length) {
+                current = index;
+                contents[current] = new StringBuilder();
+                return;
+            }
+        }
+
+        if (current >= 0) {
+            contents[current].append(line).append('\n');
+        }
+    }
+
+    @Override public void onCommandCompleted(int id, int exitCode) {
+        if (listener != null) {
+            for (int i = 0; i < paths.length; i++) {
+                final String content = getContent(i);
+                listener.onFileRead(paths[i], ((content != null) ? content : ""));
+            }
+        }
+        super.onCommandCompleted(id, exitCode);
+    }
+
+    @Nullable private String getContent(int index) {
+        if (failed[index] || contents[index] == null) {
+            return null;
+        }
+        return contents[index].toString().trim();
+    }
+
+    /**
+     * @return A map of path to trimmed content, files which could not be read are not contained
+     */
+    @NonNull Map<String, String> getContents() {
+        final HashMap<String, String> result = new HashMap<>(paths.length * 2);
+        for (int i = 0; i < paths.length; i++) {
+            final String content = getContent(i);
+            if (content != null) {
+                result.put(paths[i], content);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import at.amartinz.hardware.Constants;
+import at.amartinz.execution.Command;
+import at.amartinz.execution.RootShell;
+import at.amartinz.execution.ShellManager;
+
+/**
+ * Collects writes, which need root, and flushes them as one root shell command.
+ * <p>
+ * Pending writes get merged per path, the last written value wins and moves the path to the end
+ * of the queue, so writes get applied in the order they were last queued. The queue gets flushed
+ * {@link #FLUSH_DELAY} milliseconds after the first write got queued, which allows applying
+ * a whole profile of values within a single shell round trip.
+ */
+public class RootWriteQueue {
+    private static final String TAG = RootWriteQueue.class.getSimpleName();
+
+    public static final long FLUSH_DELAY = 50;
+    public static final long WRITE_TIMEOUT = 10000;
+
+    private static final Random sRandom = new Random(System.nanoTime());
+
+    private static RootWriteQueue sInstance;
+
+    public interface WriteListener {
+        /**
+         * @param path    The path, which got written to
+         * @param success True if the last queued value for the path got written successfully
+         */
+        void onWriteResult(@NonNull String path, boolean success);
+    }
+
+    private final LinkedHashMap<String, PendingWrite> pending = new LinkedHashMap<>();
+    private final ScheduledThreadPoolExecutor executor;
+
+    private boolean flushScheduled;
+
+    // the current thread of the executor, it gets recreated after idling
+    private volatile Thread queueThread;
+
+    private RootWriteQueue() {
+        executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override public Thread newThread(@NonNull Runnable r) {
+                final Thread thread = new Thread(r, TAG);
+                thread.setDaemon(true);
+                queueThread = thread;
+                return thread;
+            }
+        });
+        executor.setKeepAliveTime(10, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static synchronized RootWriteQueue get() {
+        if (sInstance == null) {
+            sInstance = new RootWriteQueue();
+        }
+        return sInstance;
+    }
+
+    public void enqueue(@NonNull String path, @NonNull String value) {
+        enqueue(path, value, null);
+    }
+
+    /**
+     * Queues a write, replacing any pending value for the same path and moving it to the end of the queue.
+     *
+     * @param listener An optional listener, which gets called with the result of the flush
+     */
+    public void enqueue(@NonNull String path, @NonNull String value, @Nullable WriteListener listener) {
+        if (TextUtils.isEmpty(path)) {
+            return;
+        }
+        synchronized (this) {
+            // re-insert to keep the order of the latest writes, eg. a governor before its tunables
+            PendingWrite write = pending.remove(path);
+            if (write == null) {
+                write = new PendingWrite(path);
+            }
+            pending.put(path, write);
+            // last writer wins, but everyone gets to know the outcome
+            write.value = value;
+            if (listener != null) {
+                write.listeners.add(listener);
+            }
+            scheduleFlush(FLUSH_DELAY);
+        }
+    }
+
+    /**
+     * Queues a write, flushes the queue immediately and waits up to {@link #WRITE_TIMEOUT} milliseconds
+     * for the result. If called from a {@link WriteListener}, the queue gets flushed on the calling thread.
+     *
+     * @return True if the value got written successfully
+     */
+    @WorkerThread public boolean writeBlocking(@NonNull String path, @NonNull String value) {
+        final boolean[] result = new boolean[1];
+        final CountDownLatch latch = new CountDownLatch(1);
+        enqueue(path, value, new WriteListener() {
+            @Override public void onWriteResult(@NonNull String path, boolean success) {
+                result[0] = success;
+                latch.countDown();
+            }
+        });
+        if (Thread.currentThread() == queueThread) {
+            // waiting for our own thread would never return
+            flushRunnable.run();
+        } else {
+            flush();
+        }
+        try {
+            if (!latch.await(WRITE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                if (Constants.DEBUG) {
+                    Log.w(TAG, String.format("timed out writing to %s", path));
+                }
+                return false;
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return result[0];
+    }
+
+    /**
+     * Flushes all pending writes as soon as possible.
+     */
+    public void flush() {
+        synchronized (this) {
+            scheduleFlush(0);
+        }
+    }
+
+    private void scheduleFlush(long delay) {
+        if (delay == 0) {
+            executor.execute(flushRunnable);
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            executor.schedule(flushRunnable, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override public void run() {
+            final ArrayList<PendingWrite> writes;
+            synchronized (RootWriteQueue.this) {
+                flushScheduled = false;
+                if (pending.isEmpty()) {
+                    return;
+                }
+                writes = new ArrayList<>(pending.values());
+                pending.clear();
+            }
+
+            Map<String, Boolean> results = null;
+            try {
+                results = write(writes);
+            } finally {
+                notifyListeners(writes, results);
+            }
+        }
+    };
+
+    private static void notifyListeners(@NonNull final ArrayList<PendingWrite> writes,
+            @Nullable final Map<String, Boolean> results) {
+        for (final PendingWrite write : writes) {
+            final Boolean success = ((results != null) ? results.get(write.path) : null);
+            for (final WriteListener listener : write.listeners) {
+                try {
+                    listener.onWriteResult(write.path, (success != null && success));
+                } catch (RuntimeException re) {
+                    // do not let one listener keep the others from getting their result
+                    if (Constants.DEBUG) {
+                        Log.e(TAG, "listener failed", re);
+                    }
+                }
+            }
+        }
+    }
+
+    @WorkerThread @NonNull private static Map<String, Boolean> write(@NonNull final ArrayList<PendingWrite> writes) {
+        final HashMap<String, Boolean> results = new HashMap<>(writes.size() * 2);
+        final RootShell rootShell = (HwIoUtils.isRootAvailable() ? ShellManager.get().getRootShell() : null);
+        if (rootShell == null) {
+            if (Constants.DEBUG) {
+                Log.w(TAG, "could not obtain root shell!");
+            }
+            return results;
+        }
+
+        // every write reports its own result, prefixed with a random token and its index
+        final String token = "hwwrite" + Long.toHexString(sRandom.nextLong());
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < writes.size(); i++) {
+            final PendingWrite write = writes.get(i);
+            sb.append("(echo ").append(HwIoUtils.shellQuote(write.value))
+              .append(" > ").append(HwIoUtils.shellQuote(write.path)).append(") 2>/dev/null")
+              .append(" && echo \"").append(token).append(':').append(i).append(":0\"")
+              .append(" || echo \"").append(token).append(':').append(i).append(":1\";\n");
+        }
+
+        final String prefix = token + ':';
+        final Command command = new Command(sb.toString()) {
+            @Override public void onCommandOutput(int id, String line) {
+                super.onCommandOutput(id, line);
+                if (line == null || !line.startsWith(prefix)) {
+                    return;
+                }
+                final String[] parts = line.substring(prefix.length()).split(":");
+                if (parts.length != 2) {
+                    return;
+                }
+                final int index = HwUtils.tryParseInt(parts[0]);
+                if (index >= 0 && index < writes.size()) {
+                    results.put(writes.get(index).path, "0".equals(parts[1]));
+                }
+            }
+        };
+        rootShell.add(command);
+        command.waitFor();
+
+        if (Constants.DEBUG) {
+            Log.v(TAG, String.format("flushed %s writes with one command -> %s", writes.size(), results));
+        }
+        return results;
+    }
+
+    private static class PendingWrite {
+        private final String path;
+        private final ArrayList<WriteListener> listeners = new ArrayList<>(1);
+        private String value;
+
+        private PendingWrite(String path) {
+            this.path = path;
+        }
+    }
+}
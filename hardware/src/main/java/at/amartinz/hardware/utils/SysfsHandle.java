@@ -0,0 +1,458 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import at.amartinz.hardware.Constants;
+
+/**
+ * Keeps a sysfs node open and rereads it from offset 0 into a reused buffer.
+ * <p>
+ * Handles are pooled per path, see {@link #obtain(String)}. Handles, which are unused for
+ * {@link #IDLE_TIMEOUT} milliseconds, get closed and dropped from the pool. A dropped handle, which
+ * is still referenced, reopens transparently on its next read and returns to the pool.
+ */
+public class SysfsHandle {
+    private static final String TAG = SysfsHandle.class.getSimpleName();
+
+    public static final long IDLE_TIMEOUT = 10000;
+
+    /**
+     * Returned by {@link #readInt()} if the node could not be read or parsed.
+     * Unlike {@link Constants#INVALID} it does not collide with valid readings, like negative
+     * temperatures, as values, which do not fit between it and {@link Integer#MAX_VALUE}, are invalid.
+     */
+    public static final int INVALID_INT = Integer.MIN_VALUE;
+    /**
+     * Returned by {@link #readLong()} if the node could not be read or parsed.
+     * Parsed values are limited to +/- {@link Long#MAX_VALUE}, so it never collides with a valid reading.
+     */
+    public static final long INVALID_LONG = Long.MIN_VALUE;
+
+    // sysfs attributes are limited to one page
+    private static final int BUFFER_SIZE = 4096;
+
+    private static final HashMap<String, SysfsHandle> sHandles = new HashMap<>();
+    private static ScheduledThreadPoolExecutor sIdleExecutor;
+    private static boolean sIdleCheckScheduled;
+
+    private final String path;
+
+    private RandomAccessFile file;
+    private byte[] buffer;
+    private int length;
+    private long lastUsed;
+
+    // result of the last parseLong call, only valid while holding the lock
+    private long parsedValue;
+
+    private SysfsHandle(@NonNull String path) {
+        this.path = path;
+        this.lastUsed = uptime();
+    }
+
+    /**
+     * @param path The path of the sysfs node
+     * @return The pooled handle for the given path or null if the path is empty
+     */
+    @Nullable public static SysfsHandle obtain(@Nullable String path) {
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        synchronized (sHandles) {
+            SysfsHandle handle = sHandles.get(path);
+            if (handle == null) {
+                handle = new SysfsHandle(path);
+                sHandles.put(path, handle);
+                scheduleIdleCheck();
+            }
+            return handle;
+        }
+    }
+
+    /**
+     * Reads the given path through its pooled handle.
+     *
+     * @param path The path of the sysfs node
+     * @return The trimmed content or null if it could not be read
+     */
+    @WorkerThread @Nullable public static String readString(@Nullable String path) {
+        final SysfsHandle handle = obtain(path);
+        return ((handle != null) ? handle.readString() : null);
+    }
+
+    @NonNull public String getPath() {
+        return path;
+    }
+
+    /**
+     * Rereads the node from offset 0 into the internal buffer.
+     *
+     * @return The amount of bytes read or {@link Constants#INVALID} if the node could not be read
+     */
+    @WorkerThread public synchronized int read() {
+        lastUsed = uptime();
+        if (file == null && !open()) {
+            return Constants.INVALID;
+        }
+
+        try {
+            file.seek(0);
+            length = 0;
+            int read;
+            while ((read = file.read(buffer, length, buffer.length - length)) > 0) {
+                length += read;
+                if (length == buffer.length) {
+                    // larger pages than expected, grow once and keep the bigger buffer
+                    final byte[] grown = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, length);
+                    buffer = grown;
+                }
+            }
+            return length;
+        } catch (IOException ioe) {
+            // the node might have vanished, eg. the core went offline
+            if (Constants.DEBUG) {
+                Log.e(TAG, String.format("Could not read file -> %s", path), ioe);
+            }
+            closeInternal();
+        }
+        return Constants.INVALID;
+    }
+
+    /**
+     * @return The trimmed content of the node or null if it could not be read
+     */
+    @WorkerThread @Nullable public synchronized String readString() {
+        final int read = read();
+        if (read == Constants.INVALID) {
+            return null;
+        }
+        int start = 0;
+        int end = read;
+        while (start < end && buffer[start] <= ' ') {
+            start++;
+        }
+        while (end > start && buffer[end - 1] <= ' ') {
+            end--;
+        }
+        return new String(buffer, start, end - start);
+    }
+
+    /**
+     * Same as {@link #readString()}, but returns the given previous value instead of allocating
+     * a new string, if the content did not change.
+     *
+     * @param previous The previously read content
+     * @return The trimmed content of the node or null if it could not be read
+     */
+    @WorkerThread @Nullable public synchronized String readStringReusing(@Nullable String previous) {
+        final int read = read();
+        if (read == Constants.INVALID) {
+            return null;
+        }
+        int start = 0;
+        int end = read;
+        while (start < end && buffer[start] <= ' ') {
+            start++;
+        }
+        while (end > start && buffer[end - 1] <= ' ') {
+            end--;
+        }
+        if (previous != null && previous.length() == (end - start)) {
+            // sysfs attributes like governors are plain ascii
+            int i = 0;
+            while (i < previous.length() && previous.charAt(i) == buffer[start + i]) {
+                i++;
+            }
+            if (i == previous.length()) {
+                return previous;
+            }
+        }
+        return new String(buffer, start, end - start);
+    }
+
+    /**
+     * Parses the content of the node as int, without allocating.
+     *
+     * @return The parsed value or {@link #INVALID_INT} if the node could not be read or parsed
+     */
+    @WorkerThread public synchronized int readInt() {
+        final long value = readLong();
+        if (value <= Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return INVALID_INT;
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses the content of the node as long, without allocating.
+     *
+     * @return The parsed value or {@link #INVALID_LONG} if the node could not be read or parsed
+     */
+    @WorkerThread public synchronized long readLong() {
+        final int read = read();
+        if (read == Constants.INVALID) {
+            return INVALID_LONG;
+        }
+        int pos = skipWhitespace(buffer, 0, read);
+        final int end = parseLong(buffer, pos, read);
+        if (end == pos) {
+            return INVALID_LONG;
+        }
+        final long value = parsedValue;
+        // the whole content has to be the number, same as HwUtils.tryParseLong
+        pos = skipWhitespace(buffer, end, read);
+        return ((pos == read) ? value : INVALID_LONG);
+    }
+
+    /**
+     * Parses the whitespace separated content of the node into the given array, without allocating.
+     * <p>
+     * If the destination is too small, it gets filled completely and the total amount of values
+     * gets returned, which allows callers to grow their array and retry.
+     *
+     * @param dst The array to fill
+     * @return The amount of values or {@link Constants#INVALID} if the node could not be read or parsed
+     */
+    @WorkerThread public synchronized int readIntArray(@NonNull int[] dst) {
+        final int read = read();
+        if (read == Constants.INVALID) {
+            return Constants.INVALID;
+        }
+        int count = 0;
+        int pos = skipWhitespace(buffer, 0, read);
+        while (pos < read) {
+            final int end = parseLong(buffer, pos, read);
+            if (end == pos || (end < read && buffer[end] > ' ')
+                || parsedValue < Integer.MIN_VALUE || parsedValue > Integer.MAX_VALUE) {
+                return Constants.INVALID;
+            }
+            if (count < dst.length) {
+                dst[count] = (int) parsedValue;
+            }
+            count++;
+            pos = skipWhitespace(buffer, end, read);
+        }
+        return count;
+    }
+
+    /**
+     * Parses the whitespace separated content of the node into the given array, without allocating.
+     *
+     * @param dst The array to fill
+     * @return The amount of values or {@link Constants#INVALID} if the node could not be read or parsed
+     * @see #readIntArray(int[])
+     */
+    @WorkerThread public synchronized int readLongArray(@NonNull long[] dst) {
+        final int read = read();
+        if (read == Constants.INVALID) {
+            return Constants.INVALID;
+        }
+        int count = 0;
+        int pos = skipWhitespace(buffer, 0, read);
+        while (pos < read) {
+            final int end = parseLong(buffer, pos, read);
+            if (end == pos || (end < read && buffer[end] > ' ')) {
+                return Constants.INVALID;
+            }
+            if (count < dst.length) {
+                dst[count] = parsedValue;
+            }
+            count++;
+            pos = skipWhitespace(buffer, end, read);
+        }
+        return count;
+    }
+
+    private static int skipWhitespace(final byte[] buffer, int pos, final int end) {
+        while (pos < end && buffer[pos] <= ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Parses an optionally signed decimal number starting at the given position into {@link #parsedValue}.
+     *
+     * @return The position after the last digit or the start position if there is no valid number
+     */
+    private int parseLong(final byte[] buffer, final int start, final int end) {
+        int pos = start;
+        final boolean negative = (pos < end && buffer[pos] == '-');
+        if (negative) {
+            pos++;
+        }
+        final int digitStart = pos;
+        long value = 0;
+        while (pos < end) {
+            final int digit = buffer[pos] - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            if (value > (Long.MAX_VALUE - digit) / 10) {
+                // overflow
+                return start;
+            }
+            value = value * 10 + digit;
+            pos++;
+        }
+        if (pos == digitStart) {
+            return start;
+        }
+        parsedValue = (negative ? -value : value);
+        return pos;
+    }
+
+    public synchronized void close() {
+        closeInternal();
+    }
+
+    /**
+     * Closes the descriptors of all pooled handles.
+     */
+    public static void closeAll() {
+        for (final SysfsHandle handle : snapshotHandles()) {
+            handle.close();
+        }
+    }
+
+    private boolean open() {
+        final File f = HwIoUtils.getFile(path);
+        if (!f.canRead()) {
+            if (Constants.DEBUG) {
+                Log.w(TAG, String.format("Can not read file, because it is not readable -> %s", path));
+            }
+            return false;
+        }
+        try {
+            file = new RandomAccessFile(f, "r");
+        } catch (IOException ioe) {
+            if (Constants.DEBUG) {
+                Log.e(TAG, String.format("Could not open file -> %s", path), ioe);
+            }
+            return false;
+        }
+        if (buffer == null) {
+            buffer = new byte[BUFFER_SIZE];
+        }
+        synchronized (sHandles) {
+            // a dropped handle, which is still in use, returns to the pool
+            if (!sHandles.containsKey(path)) {
+                sHandles.put(path, this);
+            }
+            scheduleIdleCheck();
+        }
+        return true;
+    }
+
+    private void closeInternal() {
+        HwIoUtils.closeQuietly(file);
+        file = null;
+        buffer = null;
+        length = 0;
+    }
+
+    /**
+     * Closes the handle and drops it from the pool, if it got not used within {@link #IDLE_TIMEOUT}.
+     */
+    private synchronized void evictIfIdle(final long now) {
+        if ((now - lastUsed) < IDLE_TIMEOUT) {
+            return;
+        }
+        closeInternal();
+        synchronized (sHandles) {
+            if (sHandles.get(path) == this) {
+                sHandles.remove(path);
+            }
+        }
+    }
+
+    private static ArrayList<SysfsHandle> snapshotHandles() {
+        synchronized (sHandles) {
+            return new ArrayList<>(sHandles.values());
+        }
+    }
+
+    private static void scheduleIdleCheck() {
+        synchronized (sHandles) {
+            if (sIdleCheckScheduled) {
+                return;
+            }
+            if (sIdleExecutor == null) {
+                sIdleExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                    @Override public Thread newThread(@NonNull Runnable r) {
+                        final Thread thread = new Thread(r, TAG);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+                sIdleExecutor.setKeepAliveTime(IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+                sIdleExecutor.allowCoreThreadTimeOut(true);
+            }
+            sIdleCheckScheduled = true;
+            sIdleExecutor.schedule(sIdleCheck, IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // monotonic millis without android.os.SystemClock, so the pool also runs on a plain jvm
+    private static long uptime() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private static final Runnable sIdleCheck = new Runnable() {
+        @Override public void run() {
+            // clear the flag first, so handles opened while checking reschedule on their own
+            synchronized (sHandles) {
+                sIdleCheckScheduled = false;
+            }
+
+            final long now = uptime();
+            for (final SysfsHandle handle : snapshotHandles()) {
+                handle.evictIfIdle(now);
+            }
+
+            // keep checking as long as there are pooled handles
+            synchronized (sHandles) {
+                if (!sHandles.isEmpty()) {
+                    scheduleIdleCheck();
+                }
+            }
+        }
+    };
+}
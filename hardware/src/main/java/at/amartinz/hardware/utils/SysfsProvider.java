@@ -0,0 +1,50 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.utils;
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+
+/**
+ * Maps the absolute paths, which the readers use, to the files backing them.
+ * <p>
+ * All file access of {@link HwIoUtils} goes through the provider set via
+ * {@link HwIoUtils#setSysfsProvider(SysfsProvider)}, which allows running the read pipeline
+ * against a captured device tree, see {@link FixtureSysfsProvider}.
+ */
+public interface SysfsProvider {
+    /**
+     * @param path An absolute device path, eg. /sys/devices/system/cpu/present
+     * @return The file backing the given path
+     */
+    @NonNull File getFile(@NonNull String path);
+
+    /**
+     * @return True if reads and writes may fall back to root shell commands, which always operate
+     * on the real filesystem
+     */
+    boolean supportsRoot();
+}
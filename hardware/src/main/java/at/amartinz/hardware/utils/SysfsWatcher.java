@@ -0,0 +1,224 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package at.amartinz.hardware.utils;
+
+import android.os.FileObserver;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.Log;
+
+import at.amartinz.hardware.Constants;
+
+/**
+ * Watches sysfs nodes and reports changes of their values, instead of handing out every read.
+ * <p>
+ * Nodes, which only change by writes from user space (eg. scaling_governor or scaling_max_freq
+ * being set by another tool), get watched via inotify. As the kernel does not notify about its own
+ * updates, they are additionally polled at the maximum interval.
+ * All other nodes get polled adaptively, the interval doubles with every unchanged read, up to the
+ * maximum interval, and snaps back to the minimum interval as soon as the value changes.
+ */
+public class SysfsWatcher {
+    private static final String TAG = SysfsWatcher.class.getSimpleName();
+
+    public static final long MIN_INTERVAL = 250;
+    public static final long MAX_INTERVAL = 8000;
+
+    private static SysfsWatcher sInstance;
+
+    private final Handler handler;
+
+    public interface ChangeListener {
+        /**
+         * @param path  The path of the watched node
+         * @param value The new trimmed value or null if the node can not be read anymore
+         */
+        void onChanged(@NonNull String path, @Nullable String value);
+    }
+
+    private SysfsWatcher() {
+        final HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    public static synchronized SysfsWatcher get() {
+        if (sInstance == null) {
+            sInstance = new SysfsWatcher();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Polls the given node adaptively and reports changes on the watcher thread.
+     */
+    @NonNull public Watch watch(@NonNull String path, @NonNull ChangeListener listener) {
+        return watch(path, false, MIN_INTERVAL, MAX_INTERVAL, listener, null);
+    }
+
+    /**
+     * @param path            The path of the node to watch
+     * @param notifiesWrites  True if the node only changes by writes from user space, which allows
+     *                        watching it via inotify
+     * @param minInterval     The polling interval after a change, in milliseconds
+     * @param maxInterval     The polling interval of an idle node, in milliseconds
+     * @param listener        The listener, which only gets called if the value changed
+     * @param callbackHandler The handler to call the listener on or null to call it on the watcher thread
+     * @return The started watch, which has to be {@link Watch#cancel() cancelled} if not needed anymore
+     */
+    @NonNull public Watch watch(@NonNull String path, boolean notifiesWrites, long minInterval, long maxInterval,
+            @NonNull ChangeListener listener, @Nullable Handler callbackHandler) {
+        final long min = Math.max(1, minInterval);
+        final Watch watch = new Watch(path, notifiesWrites, min, Math.max(min, maxInterval), listener, callbackHandler);
+        watch.start();
+        return watch;
+    }
+
+    public class Watch {
+        private final String path;
+        private final long minInterval;
+        private final long maxInterval;
+        private final ChangeListener listener;
+        @Nullable private final Handler callbackHandler;
+        @Nullable private final FileObserver observer;
+
+        // only accessed on the watcher thread
+        private long interval;
+        private boolean initialized;
+
+        private volatile String value;
+        private volatile boolean cancelled;
+
+        private Watch(@NonNull String path, boolean notifiesWrites, long minInterval, long maxInterval,
+                @NonNull ChangeListener listener, @Nullable Handler callbackHandler) {
+            this.path = path;
+            this.minInterval = minInterval;
+            this.maxInterval = maxInterval;
+            this.listener = listener;
+            this.callbackHandler = callbackHandler;
+            this.interval = (notifiesWrites ? maxInterval : minInterval);
+
+            if (notifiesWrites) {
+                final int mask = FileObserver.MODIFY | FileObserver.CLOSE_WRITE;
+                observer = new FileObserver(HwIoUtils.getFile(path).getAbsolutePath(), mask) {
+                    @Override public void onEvent(int event, String p) {
+                        checkNow();
+                    }
+                };
+            } else {
+                observer = null;
+            }
+        }
+
+        @NonNull public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return The last known value, null if the node could not be read or got not read yet
+         */
+        @Nullable public String getValue() {
+            return value;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Checks the node right away, eg. after writing to it.
+         */
+        public void checkNow() {
+            if (!cancelled) {
+                handler.removeCallbacks(checkRunnable);
+                handler.post(checkRunnable);
+            }
+        }
+
+        public void cancel() {
+            cancelled = true;
+            if (observer != null) {
+                observer.stopWatching();
+            }
+            handler.removeCallbacks(checkRunnable);
+        }
+
+        private void start() {
+            if (observer != null) {
+                observer.startWatching();
+            }
+            handler.post(checkRunnable);
+        }
+
+        private final Runnable checkRunnable = new Runnable() {
+            @Override public void run() {
+                if (cancelled) {
+                    return;
+                }
+
+                final String newValue = SysfsHandle.readString(path);
+                if (!initialized) {
+                    // the initial read is no change
+                    initialized = true;
+                    value = newValue;
+                } else if (!TextUtils.equals(value, newValue)) {
+                    value = newValue;
+                    if (observer == null) {
+                        interval = minInterval;
+                    }
+                    dispatch(newValue);
+                } else if (observer == null) {
+                    interval = Math.min(interval * 2, maxInterval);
+                }
+
+                handler.removeCallbacks(this);
+                if (!cancelled) {
+                    handler.postDelayed(this, interval);
+                }
+            }
+        };
+
+        private void dispatch(@Nullable final String newValue) {
+            if (Constants.DEBUG) {
+                Log.v(TAG, String.format("%s changed -> %s", path, newValue));
+            }
+            if (callbackHandler == null) {
+                listener.onChanged(path, newValue);
+                return;
+            }
+            callbackHandler.post(new Runnable() {
+                @Override public void run() {
+                    if (!cancelled) {
+                        listener.onChanged(path, newValue);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package at.amartinz.hardware.cpu;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import at.amartinz.hardware.utils.FixtureSysfsProvider;
+import at.amartinz.hardware.utils.HwIoUtils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Reads the captured cpufreq tree of a sm8150 device through {@link FixtureSysfsProvider}.
+ */
+public class CpuTopologyTest {
+    @Before public void setUp() throws Exception {
+        final File root = new File(getClass().getResource("/fixtures/sm8150").toURI());
+        HwIoUtils.setSysfsProvider(new FixtureSysfsProvider(root));
+        CpuTopology.invalidate();
+    }
+
+    @After public void tearDown() {
+        HwIoUtils.setSysfsProvider(null);
+        CpuTopology.invalidate();
+    }
+
+    @Test public void discoversClusters() {
+        final List<CpuCluster> clusters = CpuTopology.getClusters();
+        assertEquals(3, clusters.size());
+
+        assertEquals(0, clusters.get(0).policy);
+        assertArrayEquals(new int[]{ 0, 1, 2, 3 }, clusters.get(0).cpus);
+        assertEquals(4, clusters.get(1).policy);
+        assertArrayEquals(new int[]{ 4, 5, 6 }, clusters.get(1).cpus);
+        assertEquals(7, clusters.get(2).policy);
+        assertArrayEquals(new int[]{ 7 }, clusters.get(2).cpus);
+
+        final CpuCluster prime = clusters.get(2);
+        assertEquals(20, prime.freqAvail.size());
+        assertEquals(825600, prime.freqAvail.min());
+        assertEquals(2841600, prime.freqAvail.max());
+        assertEquals(2, prime.govAvail.size());
+        assertEquals("performance", prime.govAvail.get(0));
+        assertEquals("schedutil", prime.govAvail.get(1));
+
+        assertSame(prime, CpuTopology.getClusterOfCpu(7));
+        assertNull(CpuTopology.getClusterOfCpu(8));
+    }
+
+    @Test public void readsCurrentValues() {
+        final List<CpuCluster> clusters = CpuTopology.readClusters();
+        assertEquals(3, clusters.size());
+
+        final CpuCluster little = clusters.get(0);
+        assertEquals(1209600, little.freqCur);
+        assertEquals(1785600, little.freqMax);
+        assertEquals(300000, little.freqMin);
+        assertEquals("schedutil", little.govCur);
+
+        final CpuCluster prime = clusters.get(2);
+        assertEquals(2841600, prime.freqCur);
+        assertEquals(2841600, prime.freqMax);
+        assertEquals(825600, prime.freqMin);
+        assertEquals("schedutil", prime.govCur);
+    }
+
+    @Test public void readsCpuLists() {
+        assertEquals(CpuList.parse("0-7"), CpuReader.readPresentCpus());
+        assertEquals(CpuList.parse("0-7"), CpuReader.readOnlineCpus());
+        assertEquals(0, CpuReader.readOfflineCpus().cardinality());
+    }
+}
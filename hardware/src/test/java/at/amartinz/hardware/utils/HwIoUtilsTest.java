@@ -0,0 +1,74 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package at.amartinz.hardware.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reads the captured sysfs tree of a sm8150 device through {@link FixtureSysfsProvider}.
+ */
+public class HwIoUtilsTest {
+    private static final String PATH_POLICY = "/sys/devices/system/cpu/cpufreq/policy4/";
+
+    @Before public void setUp() throws Exception {
+        final File root = new File(getClass().getResource("/fixtures/sm8150").toURI());
+        HwIoUtils.setSysfsProvider(new FixtureSysfsProvider(root));
+    }
+
+    @After public void tearDown() {
+        HwIoUtils.setSysfsProvider(null);
+    }
+
+    @Test public void readsSingleFiles() {
+        assertTrue(HwIoUtils.fileExists(PATH_POLICY + "scaling_cur_freq"));
+        assertFalse(HwIoUtils.fileExists(PATH_POLICY + "does_not_exist"));
+
+        assertEquals(825600, HwIoUtils.readInt(PATH_POLICY + "scaling_cur_freq"));
+        assertEquals(2419200L, HwIoUtils.readLong(PATH_POLICY + "scaling_max_freq"));
+        assertEquals("schedutil", HwIoUtils.readSysfsFile(PATH_POLICY + "scaling_governor"));
+        assertEquals(SysfsHandle.INVALID_INT, HwIoUtils.readInt(PATH_POLICY + "does_not_exist"));
+        assertNull(HwIoUtils.readSysfsFile(PATH_POLICY + "does_not_exist"));
+    }
+
+    @Test public void readsFilesInOneBatch() {
+        final Map<String, String> contents = HwIoUtils.readFiles(PATH_POLICY + "scaling_cur_freq",
+                PATH_POLICY + "scaling_governor", PATH_POLICY + "scaling_governor", PATH_POLICY + "does_not_exist");
+        assertEquals(2, contents.size());
+        assertEquals("825600", contents.get(PATH_POLICY + "scaling_cur_freq"));
+        assertEquals("schedutil", contents.get(PATH_POLICY + "scaling_governor"));
+        assertNull(contents.get(PATH_POLICY + "does_not_exist"));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package at.amartinz.hardware.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import at.amartinz.hardware.Constants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reads the captured /proc/meminfo of a sm8150 device through {@link FixtureSysfsProvider}.
+ */
+public class ProcKeyValueReaderTest {
+    private static final String PATH_MEMINFO = "/proc/meminfo";
+
+    @Before public void setUp() throws Exception {
+        final File root = new File(getClass().getResource("/fixtures/sm8150").toURI());
+        HwIoUtils.setSysfsProvider(new FixtureSysfsProvider(root));
+    }
+
+    @After public void tearDown() {
+        HwIoUtils.setSysfsProvider(null);
+    }
+
+    @Test public void readsKeys() {
+        final ProcKeyValueReader reader = new ProcKeyValueReader(PATH_MEMINFO, "MemTotal", "MemAvailable", "SwapFree");
+        assertTrue(reader.read());
+        assertTrue(reader.isComplete());
+        assertEquals(5652340L, reader.getLong(0));
+        assertEquals(2291428L, reader.getLong(1));
+        assertEquals(1836236L, reader.getLong(2));
+        assertEquals("5652340 kB", reader.getString(0));
+    }
+
+    @Test public void reportsMissingKeys() {
+        final ProcKeyValueReader reader = new ProcKeyValueReader(PATH_MEMINFO, "MemTotal", "CmaTotal");
+        assertTrue(reader.read());
+        assertFalse(reader.isComplete());
+        assertFalse(reader.has(1));
+        assertEquals(Constants.INVALID, reader.getLong(1));
+        assertNull(reader.getString(1));
+    }
+
+    @Test public void failsOnMissingFile() {
+        final ProcKeyValueReader reader = new ProcKeyValueReader("/proc/does_not_exist", "MemTotal");
+        assertFalse(reader.read());
+    }
+}
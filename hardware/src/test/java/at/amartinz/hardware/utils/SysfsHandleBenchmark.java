@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package at.amartinz.hardware.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares reading a sysfs node through a pooled {@link SysfsHandle} against opening, reading and
+ * parsing it on every call, like {@link HwIoUtils#readSysfsIntValue(String)} did before.
+ * <p>
+ * Only runs if the "benchmark" system property is set, eg. ./gradlew :hardware:testDebugUnitTest -Pbenchmark
+ * Numbers of the fixture tree measure the overhead around the read, the actual sysfs read on a
+ * device adds the same kernel time to both variants.
+ */
+public class SysfsHandleBenchmark {
+    private static final String PATH_FREQ_CUR = "/sys/devices/system/cpu/cpufreq/policy0/scaling_cur_freq";
+
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int ITERATIONS = 200000;
+    private static final int ROUNDS = 5;
+
+    @Before public void setUp() throws Exception {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        final File root = new File(getClass().getResource("/fixtures/sm8150").toURI());
+        HwIoUtils.setSysfsProvider(new FixtureSysfsProvider(root));
+    }
+
+    @After public void tearDown() {
+        HwIoUtils.setSysfsProvider(null);
+    }
+
+    @Test public void readInt() {
+        assertEquals(readLegacy(), HwIoUtils.readInt(PATH_FREQ_CUR));
+
+        final Runnable legacy = new Runnable() {
+            @Override public void run() {
+                readLegacy();
+            }
+        };
+        final Runnable handle = new Runnable() {
+            @Override public void run() {
+                HwIoUtils.readInt(PATH_FREQ_CUR);
+            }
+        };
+        measure(legacy, WARMUP_ITERATIONS);
+        measure(handle, WARMUP_ITERATIONS);
+        for (int round = 0; round < ROUNDS; round++) {
+            report("legacy", measure(legacy, ITERATIONS));
+            report("handle", measure(handle, ITERATIONS));
+        }
+    }
+
+    // the implementation of readSysfsIntValue before SysfsHandle
+    private static int readLegacy() {
+        return HwUtils.tryParseInt(HwIoUtils.readFile(PATH_FREQ_CUR));
+    }
+
+    private static double measure(Runnable runnable, int iterations) {
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            runnable.run();
+        }
+        return ((double) (System.nanoTime() - start)) / iterations;
+    }
+
+    private static void report(String name, double nanosPerOp) {
+        System.out.println(String.format(Locale.US, "%s: %.0f ns/op", name, nanosPerOp));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Alexander Martinz
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package at.amartinz.hardware.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import at.amartinz.hardware.Constants;
+import at.amartinz.hardware.thermal.ThermalZones;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Reads the captured sysfs tree of a sm8150 device through {@link FixtureSysfsProvider}.
+ */
+public class SysfsHandleTest {
+    private static final String PATH_FREQ_CUR = "/sys/devices/system/cpu/cpufreq/policy0/scaling_cur_freq";
+    private static final String PATH_GOV = "/sys/devices/system/cpu/cpufreq/policy0/scaling_governor";
+    // a cold zone, which reports -1 degree Celsius
+    private static final String PATH_TEMP = "/sys/class/thermal/thermal_zone0/temp";
+    private static final String PATH_MISSING = "/sys/class/thermal/thermal_zone9/temp";
+
+    @Before public void setUp() throws Exception {
+        final File root = new File(getClass().getResource("/fixtures/sm8150").toURI());
+        HwIoUtils.setSysfsProvider(new FixtureSysfsProvider(root));
+    }
+
+    @After public void tearDown() {
+        HwIoUtils.setSysfsProvider(null);
+    }
+
+    @Test public void readsValues() {
+        final SysfsHandle handle = SysfsHandle.obtain(PATH_FREQ_CUR);
+        assertEquals(1209600, handle.readInt());
+        // rereads from offset 0
+        assertEquals(1209600L, handle.readLong());
+        assertEquals("1209600", handle.readString());
+    }
+
+    @Test public void readsNegativeValues() {
+        assertEquals(-1, HwIoUtils.readInt(PATH_TEMP));
+        assertEquals(-1L, HwIoUtils.readLong(PATH_TEMP));
+        assertEquals(-1000, ThermalZones.toMilliCelsius(HwIoUtils.readLong(PATH_TEMP)));
+    }
+
+    @Test public void reportsUnreadableValues() {
+        assertEquals(SysfsHandle.INVALID_INT, HwIoUtils.readInt(PATH_MISSING));
+        assertEquals(SysfsHandle.INVALID_LONG, HwIoUtils.readLong(PATH_MISSING));
+        assertEquals(SysfsHandle.INVALID_INT, HwIoUtils.readInt(PATH_GOV));
+        assertEquals(SysfsHandle.INVALID_LONG, HwIoUtils.readLong(PATH_GOV));
+        assertEquals(Constants.INVALID, HwIoUtils.readSysfsIntValue(PATH_MISSING));
+        assertEquals(ThermalZones.INVALID_TEMPERATURE, ThermalZones.toMilliCelsius(HwIoUtils.readLong(PATH_MISSING)));
+    }
+}